@@ -0,0 +1,39 @@
+// Compares the default and virtual-threads profiles under the same load:
+//   k6 run -e VUS=1000 loadtest/customers.js
+//   k6 run -e VUS=5000 loadtest/customers.js
+//   k6 run -e VUS=10000 loadtest/customers.js
+// Raise the client's open file limit (ulimit -n) before the 5k/10k runs.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '1000');
+
+export const options = {
+    scenarios: {
+        customers: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const email = `loadtest.${Date.now()}@mail.com`;
+    const headers = { 'Content-Type': 'application/json' };
+    http.post(`${BASE_URL}/api/v1/customers`, JSON.stringify({
+        name: 'Load Test', email, age: 30, gender: 'MALE', password: 'password',
+    }), { headers });
+    const login = http.post(`${BASE_URL}/api/v1/auth/login`,
+        JSON.stringify({ username: email, password: 'password' }), { headers });
+    return { token: login.json('token'), customerId: login.json('customerDTO.id') };
+}
+
+export default function (data) {
+    const res = http.get(`${BASE_URL}/api/v1/customers/${data.customerId}`, {
+        headers: { Authorization: `Bearer ${data.token}` },
+    });
+    check(res, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,56 @@
+package it.oleynik.benchmark;
+
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class BenchmarkFixtures {
+
+    static final String BCRYPT_HASH = "$2a$10$7EqJtq98hPqEX7fNZaFWoOHiA3ip1kO1fLwqbOC/xYgOCrTY6r5Ye";
+
+    private BenchmarkFixtures() {
+    }
+
+    static Customer customer(int id) {
+        return new Customer(id, "Customer " + id, "customer" + id + "@mail.com", 18 + id % 80,
+                id % 2 == 0 ? Gender.MALE : Gender.FEMALE, BCRYPT_HASH);
+    }
+
+    static List<Customer> customers(int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            customers.add(customer(i));
+        }
+        return customers;
+    }
+
+    static ResultSet customerRow(Customer customer) {
+        Map<String, Object> columns = Map.of(
+                "id", customer.getId(),
+                "name", customer.getName(),
+                "email", customer.getEmail(),
+                "age", customer.getAge(),
+                "gender", customer.getGender().name(),
+                "password", customer.getPassword(),
+                "roles", customer.getRoles().value(),
+                "version", customer.getVersion()
+        );
+
+        return (ResultSet) Proxy.newProxyInstance(
+                BenchmarkFixtures.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getInt" -> (Integer) columns.getOrDefault((String) args[0], 0);
+                    case "getLong" -> (Long) columns.getOrDefault((String) args[0], 0L);
+                    case "getString" -> (String) columns.get((String) args[0]);
+                    case "getObject" -> columns.get((String) args[0]);
+                    case "wasNull" -> false;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,90 @@
+package it.oleynik.benchmark;
+
+import it.oleynik.customer.db.CustomerDTORowMapper;
+import it.oleynik.customer.db.CustomerJDBCDataAccessService;
+import it.oleynik.customer.db.CustomerRowMapper;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// needs Docker: the probes run against a throwaway Postgres started once per trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerExistenceQueryBenchmark {
+
+    private static final int CUSTOMERS = 5_000;
+    private static final int PROBES = 500;
+
+    private PostgreSQLContainer<?> postgres;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerJDBCDataAccessService customerDao;
+    private final List<String> probes = new ArrayList<>(PROBES);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:latest");
+        postgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+
+        DataSource dataSource = DataSourceBuilder.create()
+                .driverClassName(postgres.getDriverClassName())
+                .url(postgres.getJdbcUrl())
+                .username(postgres.getUsername())
+                .password(postgres.getPassword())
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        customerDao = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper(), new CustomerDTORowMapper());
+        customerDao.insertCustomers(BenchmarkFixtures.customers(CUSTOMERS));
+
+        // half of the probes hit, half miss
+        for (int i = 1; i <= PROBES; i++) {
+            probes.add(i % 2 == 0 ? "customer" + i + "@mail.com" : "missing" + i + "@mail.com");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    // the query the DAO used before EXISTS, kept as the baseline
+    @Benchmark
+    public boolean countProbe() {
+        Integer found = jdbcTemplate.queryForObject(
+                "SELECT count(id) FROM customer WHERE email = ?", Integer.class, nextProbe());
+        return found != null && found > 0;
+    }
+
+    @Benchmark
+    public boolean existsProbe() {
+        return customerDao.existsCustomerWithEmail(nextProbe());
+    }
+
+    // one = ANY round trip for all probes, divide by PROBES to compare with the single probes
+    @Benchmark
+    public Set<String> batchedProbe() {
+        return customerDao.existsCustomersWithEmails(probes);
+    }
+
+    private String nextProbe() {
+        String probe = probes.get(next);
+        next = (next + 1) % PROBES;
+        return probe;
+    }
+}
@@ -0,0 +1,91 @@
+package it.oleynik.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import it.oleynik.customer.dto.CustomerDTO;
+import it.oleynik.customer.dto.CustomerDTOMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    @Param({"json", "json-blackbird", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter writer;
+    private List<CustomerDTO> customers;
+
+    // counts the bytes each benchmark produces; in avgt mode JMH reports it as time per byte, so the
+    // benchmark score divided by the "bytes" score is the payload size of one call
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PayloadSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        CustomerDTOMapper mapper = new CustomerDTOMapper();
+        customers = BenchmarkFixtures.customers(size).stream().map(mapper).toList();
+        writer = objectMapper(format).writerFor(new TypeReference<List<CustomerDTO>>() {
+        });
+    }
+
+    @Benchmark
+    public byte[] serializeList(PayloadSize payloadSize) throws JsonProcessingException {
+        byte[] payload = writer.writeValueAsBytes(customers);
+        payloadSize.bytes += payload.length;
+        return payload;
+    }
+
+    // what the server pays with compression on
+    @Benchmark
+    public byte[] serializeListGzip(PayloadSize payloadSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            writer.writeValue(out, customers);
+        }
+        byte[] payload = bytes.toByteArray();
+        payloadSize.bytes += payload.length;
+        return payload;
+    }
+
+    private static ObjectMapper objectMapper(String format) {
+        return switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "json-blackbird" -> Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory())
+                    .modulesToInstall(new BlackbirdModule()).build();
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory())
+                    .modulesToInstall(new BlackbirdModule()).build();
+            default -> throw new IllegalArgumentException("unknown format " + format);
+        };
+    }
+}
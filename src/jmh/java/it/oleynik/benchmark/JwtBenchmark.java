@@ -0,0 +1,64 @@
+package it.oleynik.benchmark;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.jwt.JwtKeys;
+import it.oleynik.jwt.JwtTokenService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"RS256", "ES256", "HS256"})
+    private String algorithm;
+
+    private JwtTokenService tokenService;
+    private JwtDecoder jwtDecoder;
+    private Customer customer;
+    private String token;
+
+    @Setup
+    public void setUp() throws JOSEException {
+        JWK jwk = switch (algorithm) {
+            case "RS256" -> new RSAKeyGenerator(2048)
+                    .keyID("rsa").keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.RS256).generate();
+            case "ES256" -> new ECKeyGenerator(Curve.P_256)
+                    .keyID("ec").keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.ES256).generate();
+            case "HS256" -> new OctetSequenceKeyGenerator(256)
+                    .keyID("hmac").keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.HS256).generate();
+            default -> throw new IllegalArgumentException(algorithm);
+        };
+
+        tokenService = new JwtTokenService(JwtKeys.encoder(jwk), JwtKeys.header(jwk));
+        jwtDecoder = JwtKeys.decoder(JwtKeys.verificationKeys(jwk, List.of()));
+        customer = BenchmarkFixtures.customer(42);
+        token = tokenService.generateAccessToken(customer);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return tokenService.generateAccessToken(customer);
+    }
+
+    @Benchmark
+    public Jwt decodeAccessToken() {
+        return jwtDecoder.decode(token);
+    }
+}
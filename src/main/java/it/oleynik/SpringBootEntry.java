@@ -3,15 +3,17 @@ package it.oleynik;
 import com.github.javafaker.Faker;
 import it.oleynik.customer.Gender;
 import it.oleynik.customer.db.Customer;
-import it.oleynik.customer.db.CustomerRepository;
+import it.oleynik.customer.db.CustomerDao;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-@SpringBootApplication
+// the reactive profile builds its own connection pool, see ReactiveConfig
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 public class SpringBootEntry {
 
     public static void main(String[] args) {
@@ -19,9 +21,8 @@ public class SpringBootEntry {
     }
 
     @Bean
-    CommandLineRunner runner(CustomerRepository customerRepository) {
+    CommandLineRunner runner(CustomerDao customerDao, PasswordEncoder encoder) {
         return args -> {
-            PasswordEncoder encoder = new BCryptPasswordEncoder(10);
             Faker faker = new Faker();
             String firstName = faker.name().firstName();
             String lastName = faker.name().lastName();
@@ -34,7 +35,7 @@ public class SpringBootEntry {
                     encoder.encode(faker.internet().password())
             );
 
-            customerRepository.save(customer);
+            customerDao.insertCustomer(customer);
         };
     }
 }
@@ -0,0 +1,37 @@
+package it.oleynik.config;
+
+import it.oleynik.customer.db.CustomerDao;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.Set;
+
+/**
+ * Selects the {@link CustomerDao} every service, the login path and the bulk import use, so one
+ * request never mixes Hibernate and plain jdbc. {@code customer.dao.backend} picks the store,
+ * {@code customer.dao.cache} puts the caffeine cache in front of it and
+ * {@code customer.email-filter.enabled} the email Bloom filter in front of both.
+ */
+@Configuration
+public class CustomerDaoConfig {
+
+    static final Set<String> BACKENDS = Set.of("jdbc", "jpa", "list");
+
+    @Bean
+    @Primary
+    CustomerDao customerDao(BeanFactory beanFactory,
+                            @Value("${customer.dao.backend:jdbc}") String backend,
+                            @Value("${customer.dao.cache:true}") boolean cache,
+                            @Value("${customer.email-filter.enabled:true}") boolean emailFilter) {
+        if (!BACKENDS.contains(backend)) {
+            throw new IllegalArgumentException("unknown customer dao backend %s, expected one of %s".formatted(backend, BACKENDS));
+        }
+        if (emailFilter) {
+            return beanFactory.getBean("bloom", CustomerDao.class);
+        }
+        return beanFactory.getBean(cache ? "cache" : backend, CustomerDao.class);
+    }
+}
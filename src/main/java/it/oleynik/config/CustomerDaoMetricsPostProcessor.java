@@ -0,0 +1,48 @@
+package it.oleynik.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.oleynik.customer.db.CustomerDao;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every {@link CustomerDao} call, tagged with the bean name (jdbc, jpa, list, cache).
+ * Beans that already are Spring proxies, like the transactional jdbc DAO, get the interceptor
+ * added in front of their existing advice instead of a second proxy.
+ */
+@Component
+public class CustomerDaoMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public CustomerDaoMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof CustomerDao)) {
+            return bean;
+        }
+
+        if (bean instanceof Advised advised) {
+            for (Advisor advisor : advised.getAdvisors()) {
+                if (advisor.getAdvice() instanceof CustomerDaoMetricsInterceptor) {
+                    return bean;
+                }
+            }
+            if (!advised.isFrozen()) {
+                advised.addAdvice(0, new CustomerDaoMetricsInterceptor(meterRegistry.getObject(), beanName));
+                return bean;
+            }
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(new CustomerDaoMetricsInterceptor(meterRegistry.getObject(), beanName));
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+}
@@ -0,0 +1,58 @@
+package it.oleynik.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes the Hikari pool from the host instead of the fixed default of 10. The pool is only
+ * started on the first connection request, so the size can still be changed here. An explicit
+ * {@code spring.datasource.hikari.maximum-pool-size} or {@code minimum-idle} is left alone.
+ */
+@Component
+public class HikariPoolSizing implements BeanPostProcessor {
+
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    static final String MINIMUM_IDLE = "spring.datasource.hikari.minimum-idle";
+
+    private final Environment environment;
+    private final int poolSize;
+    private final int dbMaxConnections;
+    private final int instances;
+
+    public HikariPoolSizing(Environment environment,
+                            @Value("${customer.datasource.pool-size:0}") int poolSize,
+                            @Value("${customer.datasource.db-max-connections:100}") int dbMaxConnections,
+                            @Value("${customer.datasource.instances:1}") int instances) {
+        this.environment = environment;
+        this.poolSize = poolSize;
+        this.dbMaxConnections = dbMaxConnections;
+        this.instances = instances;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource) {
+            if (environment.containsProperty(MAXIMUM_POOL_SIZE)) {
+                return bean;
+            }
+            int size = poolSize(Runtime.getRuntime().availableProcessors());
+            dataSource.setMaximumPoolSize(size);
+            if (!environment.containsProperty(MINIMUM_IDLE)) {
+                dataSource.setMinimumIdle(size);
+            }
+        }
+        return bean;
+    }
+
+    // connections = cores * 2 + 1 (one effective spindle), never more than this instance's share of the server limit
+    int poolSize(int cores) {
+        if (poolSize > 0) {
+            return poolSize;
+        }
+        int share = Math.max(1, dbMaxConnections / Math.max(1, instances));
+        return Math.min(cores * 2 + 1, share);
+    }
+}
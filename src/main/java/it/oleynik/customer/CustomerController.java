@@ -1,74 +1,249 @@
 package it.oleynik.customer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import it.oleynik.config.JacksonConfig;
+import it.oleynik.customer.auth.AuthenticationResponse;
 import it.oleynik.customer.dto.CustomerDTO;
+import it.oleynik.customer.dto.CustomerPage;
 import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import it.oleynik.customer.dto.CustomerSearchRequest;
 import it.oleynik.customer.dto.CustomerUpdateRequest;
-import it.oleynik.jwt.JwtTokenService;
+import it.oleynik.exception.PreconditionFailedException;
+import it.oleynik.jwt.RefreshTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/v1")
 public class CustomerController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // clients keep the payload but revalidate it with the ETag on every use
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final CustomerService customerService;
-    private final JwtTokenService jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ObjectWriter customerWriter;
+    private final ObjectWriter ndjsonWriter;
+    private final ObjectWriter cborWriter;
+    private final ObjectWriter smileWriter;
 
     @Autowired
     public CustomerController(CustomerService customerService,
-                              JwtTokenService jwtUtil,
-                              @Qualifier("userDetailsServiceImpl") UserDetailsService userDetailsService) {
+                              RefreshTokenService refreshTokenService,
+                              @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                              ObjectMapper objectMapper,
+                              MappingJackson2CborHttpMessageConverter cborConverter,
+                              MappingJackson2SmileHttpMessageConverter smileConverter) {
         this.customerService = customerService;
-        this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.refreshTokenService = refreshTokenService;
+        this.taskExecutor = taskExecutor;
+        this.customerWriter = objectMapper.writerFor(CustomerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.ndjsonWriter = customerWriter.withRootValueSeparator("\n");
+        this.cborWriter = cborConverter.getObjectMapper().writerFor(CustomerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.smileWriter = smileConverter.getObjectMapper().writerFor(CustomerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
-    @GetMapping("/customers")
-    public List<CustomerDTO> getCustomers() {
-        return customerService.getAllCustomers();
+    @GetMapping(value = "/customers", params = {"!after", "!limit"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getCustomers() {
+        return streamArray(customerWriter, MediaType.APPLICATION_JSON);
     }
 
-    @GetMapping("/customers/{id}")
-    public CustomerDTO fetchCustomer(@PathVariable(name = "id") Integer id) {
-        return customerService.getCustomer(id);
+    @GetMapping(value = "/customers", params = {"!after", "!limit"}, produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<StreamingResponseBody> getCustomersCbor() {
+        return streamArray(cborWriter, MediaType.APPLICATION_CBOR);
     }
 
-    @PostMapping("/customers")
-    public ResponseEntity<?> registerCustomer(@RequestBody CustomerRegistrationRequest request) {
-        customerService.addCustomer(request);
+    @GetMapping(value = "/customers", params = {"!after", "!limit"}, produces = JacksonConfig.APPLICATION_SMILE_VALUE)
+    public ResponseEntity<StreamingResponseBody> getCustomersSmile() {
+        return streamArray(smileWriter, MediaType.parseMediaType(JacksonConfig.APPLICATION_SMILE_VALUE));
+    }
+
+    @GetMapping(value = "/customers", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCustomers() {
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = ndjsonWriter.createGenerator(out);
+            customerService.streamAllCustomers(customer -> write(ndjsonWriter, generator, customer));
+            generator.writeRaw('\n');
+            generator.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
 
-        UserDetails details = userDetailsService.loadUserByUsername(request.email());
-        String jwtToken = jwtUtil.generateAccessToken(details);
+    @GetMapping(value = "/customers", produces = {
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE,
+            JacksonConfig.APPLICATION_SMILE_VALUE
+    })
+    public ResponseEntity<List<CustomerDTO>> getCustomersPage(
+            @RequestParam(name = "after", required = false) Integer after,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        CustomerPage page = customerService.getCustomersPage(after, limit);
 
-//        UsernamePasswordAuthenticationToken authenticationToken =
-//                new UsernamePasswordAuthenticationToken(request.email(), request.password());
-//        Authentication auth = authManager.authenticate(authenticationToken);
-//
-//        CustomUsrDetails user = (CustomUsrDetails) usrDetailsService.loadUserByUsername(request.username);
-//        String access_token = tokenService.generateAccessToken(user);
-//        String refresh_token = tokenService.generateRefreshToken(user);
+        // a matching If-None-Match is answered with 304 by the return value handler, before serialization
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(pageETag(page.customers()))
+                .cacheControl(CACHE_CONTROL);
+        if (page.nextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.nextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next));
+        }
+
+        return response.body(page.customers());
+    }
+
+    @GetMapping(value = "/customers/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<CustomerDTO> searchCustomers(CustomerSearchRequest request) {
+        return customerService.searchCustomers(request);
+    }
+
+    @GetMapping("/customers/{id}")
+    public ResponseEntity<CustomerDTO> fetchCustomer(
+            @PathVariable(name = "id") Integer id,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String current = eTag(customerService.getCustomerVersion(id));
+            if (matchesAny(ifNoneMatch, current)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(current)
+                        .cacheControl(CACHE_CONTROL)
+                        .build();
+            }
+        }
+
+        CustomerDTO customer = customerService.getCustomer(id);
+        return ResponseEntity.ok()
+                .eTag(eTag(customer.version()))
+                .cacheControl(CACHE_CONTROL)
+                .body(customer);
+    }
 
-        return ResponseEntity
-                .ok()
-                .body(jwtToken);
+    @PostMapping("/customers")
+    public CompletableFuture<AuthenticationResponse> registerCustomer(@RequestBody CustomerRegistrationRequest request) {
+        CompletableFuture<CustomerDTO> customer = customerService.addCustomerAsync(request);
+        // a queued registration completes on the single insert writer, so signing moves off that thread
+        return customer.isDone()
+                ? customer.thenApply(this::registrationResponse)
+                : customer.thenApplyAsync(this::registrationResponse, taskExecutor);
+    }
 
+    // same shape as a login, so a new customer also gets a refresh token
+    private AuthenticationResponse registrationResponse(CustomerDTO customer) {
+        RefreshTokenService.TokenPair tokens = refreshTokenService.issue(customer.username());
+        return new AuthenticationResponse(tokens.accessToken(), customer, tokens.refreshToken());
     }
 
     @DeleteMapping("/customers/{id}")
-    public void deleteCustomer(@PathVariable(name = "id") Integer id) {
-        customerService.deleteCustomerById(id);
+    public void deleteCustomer(@PathVariable(name = "id") Integer id,
+                               @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        customerService.deleteCustomerById(id, expectedVersion(ifMatch));
     }
 
     @PutMapping("/customers/{id}")
-    public void updateCustomer(@RequestBody CustomerUpdateRequest request,
-                               @PathVariable(name = "id") Integer id) {
-        customerService.updateCustomer(request, id);
+    public ResponseEntity<Void> updateCustomer(@RequestBody CustomerUpdateRequest request,
+                                               @PathVariable(name = "id") Integer id,
+                                               @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long version = customerService.updateCustomer(request, id, expectedVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(eTag(version))
+                .build();
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // a page is fully described by its rows' ids and versions
+    private static String pageETag(List<CustomerDTO> customers) {
+        long hash = 1125899906842597L;
+        for (CustomerDTO customer : customers) {
+            hash = 31 * hash + customer.id();
+            hash = 31 * hash + customer.version();
+        }
+        return "\"p" + Long.toHexString(hash) + "\"";
+    }
+
+    // If-None-Match uses the weak comparison, so W/ prefixes are ignored
+    private static boolean matchesAny(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Match needs a single strong ETag, "*" only requires the customer to exist
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match must be a single strong ETag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match must be a single strong ETag");
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamArray(ObjectWriter writer, MediaType contentType) {
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = writer.createGenerator(out);
+            generator.writeStartArray();
+            customerService.streamAllCustomers(customer -> write(writer, generator, customer));
+            generator.writeEndArray();
+            generator.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(body);
+    }
+
+    private static void write(ObjectWriter writer, JsonGenerator generator, CustomerDTO customer) {
+        try {
+            writer.writeValue(generator, customer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -2,107 +2,214 @@ package it.oleynik.customer;
 
 import it.oleynik.customer.db.Customer;
 import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.db.CustomerInsertBatcher;
+import it.oleynik.customer.db.CustomerSearch;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.CustomerUpdateResult;
 import it.oleynik.customer.dto.CustomerDTO;
 import it.oleynik.customer.dto.CustomerDTOMapper;
+import it.oleynik.customer.dto.CustomerPage;
 import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import it.oleynik.customer.dto.CustomerSearchRequest;
 import it.oleynik.customer.dto.CustomerUpdateRequest;
 import it.oleynik.exception.DuplicatedResourceException;
+import it.oleynik.exception.PreconditionFailedException;
 import it.oleynik.exception.RequestValidationException;
 import it.oleynik.exception.ResourceNotFoundException;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class CustomerService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final CustomerDao customerDao;
     private final PasswordEncoder passwordEncoder;
     private final CustomerDTOMapper customerDTOMapper;
+    private final CustomerInsertBatcher insertBatcher;
+
+    @Autowired
+    public CustomerService(CustomerDao customerDao,
+                           PasswordEncoder passwordEncoder,
+                           CustomerDTOMapper customerDTOMapper,
+                           ObjectProvider<CustomerInsertBatcher> insertBatcher) {
+        this(customerDao, passwordEncoder, customerDTOMapper, insertBatcher.getIfAvailable());
+    }
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao,
+    public CustomerService(CustomerDao customerDao,
                            PasswordEncoder passwordEncoder,
                            CustomerDTOMapper customerDTOMapper) {
+        this(customerDao, passwordEncoder, customerDTOMapper, (CustomerInsertBatcher) null);
+    }
+
+    public CustomerService(CustomerDao customerDao,
+                           PasswordEncoder passwordEncoder,
+                           CustomerDTOMapper customerDTOMapper,
+                           CustomerInsertBatcher insertBatcher) {
         this.customerDao = customerDao;
         this.passwordEncoder = passwordEncoder;
         this.customerDTOMapper = customerDTOMapper;
+        this.insertBatcher = insertBatcher;
     }
 
     public List<CustomerDTO> getAllCustomers() {
-        return customerDao.selectAllCustomers()
-                .stream()
-                .map(customerDTOMapper)
-                .toList();
+        return customerDao.selectAllCustomerDTOs();
+    }
+
+    public CustomerPage getCustomersPage(Integer afterId, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new RequestValidationException("limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+
+        List<CustomerDTO> customers = customerDao.selectCustomerDTOsPage(afterId, pageSize);
+        Integer nextCursor = customers.size() == pageSize ? customers.get(customers.size() - 1).id() : null;
+
+        return new CustomerPage(customers, nextCursor);
+    }
+
+    public List<CustomerDTO> searchCustomers(CustomerSearchRequest request) {
+        int limit = request.limit() == null ? DEFAULT_PAGE_SIZE : request.limit();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException("limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        int offset = request.offset() == null ? 0 : request.offset();
+        if (offset < 0) {
+            throw new RequestValidationException("offset must not be negative");
+        }
+        if (request.minAge() != null && request.maxAge() != null && request.minAge() > request.maxAge()) {
+            throw new RequestValidationException("minAge must not be greater than maxAge");
+        }
+
+        // sort is "field" or "field,asc|desc"
+        CustomerSearch.SortField sortBy = CustomerSearch.SortField.ID;
+        boolean descending = false;
+        if (request.sort() != null && !request.sort().isBlank()) {
+            String[] sort = request.sort().split(",", 2);
+            try {
+                sortBy = CustomerSearch.SortField.valueOf(sort[0].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RequestValidationException("can't sort by %s".formatted(sort[0].trim()));
+            }
+            if (sort.length == 2) {
+                String direction = sort[1].trim();
+                if (!direction.equalsIgnoreCase("asc") && !direction.equalsIgnoreCase("desc")) {
+                    throw new RequestValidationException("sort direction must be asc or desc");
+                }
+                descending = direction.equalsIgnoreCase("desc");
+            }
+        }
+
+        return customerDao.searchCustomers(new CustomerSearch(
+                blankToNull(request.name()),
+                blankToNull(request.email()),
+                request.minAge(),
+                request.maxAge(),
+                request.gender(),
+                sortBy,
+                descending,
+                limit,
+                offset
+        ));
+    }
+
+    public void streamAllCustomers(Consumer<CustomerDTO> consumer) {
+        customerDao.streamAllCustomerDTOs(consumer);
     }
 
     public CustomerDTO getCustomer(Integer id) {
-        return customerDao.selectCustomerById(id)
-                .map(customerDTOMapper)
+        return customerDao.selectCustomerDTOById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("customer with id [%s] not found".formatted(id)));
     }
 
-    public void addCustomer(CustomerRegistrationRequest request) {
-        String email = request.email();
-        if (customerDao.existsCustomerWithEmail(email)) {
+    public CustomerDTO addCustomer(CustomerRegistrationRequest request) {
+        Customer customer = newCustomer(request);
+        try {
+            return customerDTOMapper.apply(customerDao.insertCustomer(customer));
+        } catch (DuplicateKeyException e) {
+            throw new DuplicatedResourceException("email already taken");
+        }
+    }
+
+    // with write-behind on, the row is inserted with other registrations in one statement and the
+    // future completes once that statement committed; otherwise it is already complete
+    public CompletableFuture<CustomerDTO> addCustomerAsync(CustomerRegistrationRequest request) {
+        if (insertBatcher == null) {
+            return CompletableFuture.completedFuture(addCustomer(request));
+        }
+        return insertBatcher.insert(newCustomer(request)).thenApply(customerDTOMapper);
+    }
+
+    private Customer newCustomer(CustomerRegistrationRequest request) {
+        if (customerDao.existsCustomerWithEmail(request.email())) {
             throw new DuplicatedResourceException("email already taken");
         }
 
-        Customer customer = new Customer(
+        return new Customer(
                 request.name(),
                 request.email(),
                 request.age(),
                 request.gender(),
                 passwordEncoder.encode(request.password())
         );
-        customerDao.insertCustomer(customer);
     }
 
-    public void deleteCustomerById(Integer id) {
-        if (!customerDao.existsCustomerWithId(id)) {
-            throw new ResourceNotFoundException("customer with id [%s] not found".formatted(id));
-        }
+    public long getCustomerVersion(Integer id) {
+        return customerDao.selectCustomerVersion(id)
+                .orElseThrow(() -> new ResourceNotFoundException("customer with id [%s] not found".formatted(id)));
+    }
 
-        customerDao.deleteCustomerById(id);
+    public void deleteCustomerById(Integer id) {
+        deleteCustomerById(id, null);
     }
 
-    public void updateCustomer(CustomerUpdateRequest request, Integer id) {
-        if (!customerDao.existsCustomerWithId(id)) {
-            throw new ResourceNotFoundException("customer with id [%s] not found".formatted(id));
+    public void deleteCustomerById(Integer id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            if (customerDao.deleteCustomerById(id) == 0) {
+                throw new ResourceNotFoundException("customer with id [%s] not found".formatted(id));
+            }
+            return;
         }
-        Customer customer = customerDao.selectCustomerById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("customer with id [%s] not found".formatted(id)));
-        boolean needToUpdate = false;
 
-        if (request.name() != null && !request.name().equals(customer.getName())) {
-            customer.setName(request.name());
-            needToUpdate = true;
+        if (customerDao.deleteCustomerById(id, expectedVersion) == 0) {
+            getCustomerVersion(id);
+            throw new PreconditionFailedException("customer with id [%s] was modified".formatted(id));
         }
+    }
 
-        if (request.email() != null && !request.email().equals(customer.getEmail())) {
-            if (customerDao.existsCustomerWithEmail(request.email())) {
-                throw new DuplicatedResourceException("email already taken");
-            }
-
-            customer.setEmail(request.email());
-            needToUpdate = true;
-        }
+    public void updateCustomer(CustomerUpdateRequest request, Integer id) {
+        updateCustomer(request, id, null);
+    }
 
-        if (request.age() != null && !request.age().equals(customer.getAge())) {
-            customer.setAge(request.age());
-            needToUpdate = true;
-        }
+    public long updateCustomer(CustomerUpdateRequest request, Integer id, Long expectedVersion) {
+        CustomerUpdate update = new CustomerUpdate(request.name(), request.email(), request.age(), request.gender());
 
-        if (request.gender() != null && !request.gender().equals(customer.getGender())) {
-            customer.setGender(request.gender());
-            needToUpdate = true;
+        CustomerUpdateResult result;
+        try {
+            result = customerDao.updateCustomer(id, update, expectedVersion);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicatedResourceException("email already taken");
         }
 
-        if (!needToUpdate) {
-            throw new RequestValidationException("no data changes needed");
-        }
+        return switch (result.status()) {
+            case NOT_FOUND -> throw new ResourceNotFoundException("customer with id [%s] not found".formatted(id));
+            case UNCHANGED -> throw new RequestValidationException("no data changes needed");
+            case VERSION_MISMATCH -> throw new PreconditionFailedException("customer with id [%s] was modified".formatted(id));
+            case UPDATED -> result.customer().getVersion();
+        };
+    }
 
-        customerDao.updateCustomer(customer);
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 }
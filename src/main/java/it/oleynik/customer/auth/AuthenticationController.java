@@ -1,12 +1,18 @@
 package it.oleynik.customer.auth;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("api/v1/auth")
 public class AuthenticationController {
 
@@ -21,4 +27,16 @@ public class AuthenticationController {
     public AuthenticationResponse performLogin(@RequestBody AuthenticationRequest request) {
         return authenticationService.login(request);
     }
+
+    @PostMapping("refresh")
+    public RefreshTokenResponse refresh(@RequestBody RefreshTokenRequest request) {
+        return authenticationService.refresh(request);
+    }
+
+    @PostMapping("logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@AuthenticationPrincipal Jwt accessToken,
+                       @RequestBody(required = false) RefreshTokenRequest request) {
+        authenticationService.logout(accessToken, request);
+    }
 }
@@ -2,5 +2,5 @@ package it.oleynik.customer.auth;
 
 import it.oleynik.customer.dto.CustomerDTO;
 
-public record AuthenticationResponse(String token, CustomerDTO customerDTO) {
+public record AuthenticationResponse(String token, CustomerDTO customerDTO, String refreshToken) {
 }
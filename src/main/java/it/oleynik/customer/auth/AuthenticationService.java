@@ -1,28 +1,32 @@
 package it.oleynik.customer.auth;
 
-import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerCredentials;
 import it.oleynik.customer.dto.CustomerDTO;
 import it.oleynik.customer.dto.CustomerDTOMapper;
-import it.oleynik.jwt.JwtTokenService;
+import it.oleynik.jwt.RefreshTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
 @Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AuthenticationService {
 
     private final AuthenticationManager authenticationManager;
     private final CustomerDTOMapper customerDTOMapper;
-    private final JwtTokenService jwtTokenService;
+    private final RefreshTokenService refreshTokenService;
 
     @Autowired
     public AuthenticationService(AuthenticationManager authenticationManager,
-                                 CustomerDTOMapper customerDTOMapper, JwtTokenService jwtTokenService) {
+                                 CustomerDTOMapper customerDTOMapper,
+                                 RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
         this.customerDTOMapper = customerDTOMapper;
-        this.jwtTokenService = jwtTokenService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     public AuthenticationResponse login(AuthenticationRequest request) {
@@ -32,10 +36,21 @@ public class AuthenticationService {
                         request.password()
                 )
         );
-        Customer principal = (Customer) authentication.getPrincipal();
-        String token = jwtTokenService.generateAccessToken(principal);
+        CustomerCredentials principal = (CustomerCredentials) authentication.getPrincipal();
+        RefreshTokenService.TokenPair tokens = refreshTokenService.issue(principal.getUsername());
+        // the principal was loaded by the single credentials lookup, it already carries the profile columns
         CustomerDTO customerDTO = customerDTOMapper.apply(principal);
 
-        return new AuthenticationResponse(token, customerDTO);
+        return new AuthenticationResponse(tokens.accessToken(), customerDTO, tokens.refreshToken());
+    }
+
+    // no password check and no customer lookup, only a signature check and one deny-list insert
+    public RefreshTokenResponse refresh(RefreshTokenRequest request) {
+        RefreshTokenService.TokenPair tokens = refreshTokenService.refresh(request.refreshToken());
+        return new RefreshTokenResponse(tokens.accessToken(), tokens.refreshToken());
+    }
+
+    public void logout(Jwt accessToken, RefreshTokenRequest request) {
+        refreshTokenService.revoke(accessToken, request == null ? null : request.refreshToken());
     }
 }
@@ -0,0 +1,4 @@
+package it.oleynik.customer.auth;
+
+public record RefreshTokenResponse(String token, String refreshToken) {
+}
@@ -0,0 +1,11 @@
+package it.oleynik.customer.bulk;
+
+import java.util.List;
+
+public record BulkImportResponse(
+        int total,
+        int created,
+        int rejected,
+        List<BulkImportRowResult> rows
+) {
+}
@@ -0,0 +1,23 @@
+package it.oleynik.customer.bulk;
+
+public record BulkImportRowResult(
+        int row,
+        String email,
+        Status status,
+        Integer id,
+        String message
+) {
+
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+
+    static BulkImportRowResult created(int row, String email, Integer id) {
+        return new BulkImportRowResult(row, email, Status.CREATED, id, null);
+    }
+
+    static BulkImportRowResult rejected(int row, String email, String message) {
+        return new BulkImportRowResult(row, email, Status.REJECTED, null, message);
+    }
+}
@@ -0,0 +1,60 @@
+package it.oleynik.customer.bulk;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import it.oleynik.customer.CustomerController;
+import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/v1/customers/bulk")
+public class CustomerBulkImportController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final CustomerBulkImportService bulkImportService;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+
+    @Autowired
+    public CustomerBulkImportController(CustomerBulkImportService bulkImportService, ObjectMapper objectMapper) {
+        this.bulkImportService = bulkImportService;
+        this.ndjsonReader = objectMapper.readerFor(CustomerRegistrationRequest.class);
+        this.csvReader = new CsvMapper()
+                .readerFor(CustomerRegistrationRequest.class)
+                .with(CsvSchema.emptySchema().withHeader());
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResponse importCustomers(@RequestBody List<CustomerRegistrationRequest> requests) {
+        return bulkImportService.importCustomers(requests.iterator());
+    }
+
+    @PostMapping(consumes = CustomerController.APPLICATION_NDJSON_VALUE)
+    public BulkImportResponse importNdjsonCustomers(HttpServletRequest request) throws IOException {
+        try (MappingIterator<CustomerRegistrationRequest> requests = ndjsonReader.readValues(request.getInputStream())) {
+            return bulkImportService.importCustomers(requests);
+        }
+    }
+
+    @PostMapping(consumes = TEXT_CSV_VALUE)
+    public BulkImportResponse importCsvCustomers(HttpServletRequest request) throws IOException {
+        try (MappingIterator<CustomerRegistrationRequest> requests = csvReader.readValues(request.getInputStream())) {
+            return bulkImportService.importCustomers(requests);
+        }
+    }
+}
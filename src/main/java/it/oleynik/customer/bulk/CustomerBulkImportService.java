@@ -0,0 +1,154 @@
+package it.oleynik.customer.bulk;
+
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Service
+public class CustomerBulkImportService implements DisposableBean {
+
+    private final CustomerDao customerDao;
+    private final PasswordEncoder passwordEncoder;
+    private final ExecutorService hashingExecutor;
+    private final int chunkSize;
+
+    // imports hash on their own pool, the shared request-path pool would reject whole chunks
+    @Autowired
+    public CustomerBulkImportService(CustomerDao customerDao,
+                                     @Qualifier("delegatingPasswordEncoder") PasswordEncoder passwordEncoder,
+                                     @Value("${customer.import.chunk-size:1000}") int chunkSize,
+                                     @Value("${customer.import.hashing-threads:0}") int hashingThreads) {
+        this(customerDao, passwordEncoder, chunkSize, Executors.newFixedThreadPool(
+                hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors(),
+                new CustomizableThreadFactory("customer-import-hash-")));
+    }
+
+    public CustomerBulkImportService(CustomerDao customerDao,
+                                     PasswordEncoder passwordEncoder,
+                                     int chunkSize,
+                                     ExecutorService hashingExecutor) {
+        this.customerDao = customerDao;
+        this.passwordEncoder = passwordEncoder;
+        this.chunkSize = chunkSize;
+        this.hashingExecutor = hashingExecutor;
+    }
+
+    public BulkImportResponse importCustomers(Iterator<CustomerRegistrationRequest> requests) {
+        List<BulkImportRowResult> results = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<CustomerRegistrationRequest> chunk = new ArrayList<>(chunkSize);
+        int firstRow = 0;
+
+        while (requests.hasNext()) {
+            chunk.add(requests.next());
+            if (chunk.size() == chunkSize) {
+                results.addAll(importChunk(firstRow, chunk, seenEmails));
+                firstRow += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(importChunk(firstRow, chunk, seenEmails));
+        }
+
+        int created = (int) results.stream()
+                .filter(result -> result.status() == BulkImportRowResult.Status.CREATED)
+                .count();
+        return new BulkImportResponse(results.size(), created, results.size() - created, results);
+    }
+
+    private List<BulkImportRowResult> importChunk(int firstRow,
+                                                  List<CustomerRegistrationRequest> chunk,
+                                                  Set<String> seenEmails) {
+        BulkImportRowResult[] results = new BulkImportRowResult[chunk.size()];
+        Map<String, Integer> candidates = new HashMap<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            CustomerRegistrationRequest request = chunk.get(i);
+            int row = firstRow + i;
+            if (!isComplete(request)) {
+                results[i] = BulkImportRowResult.rejected(row, request.email(), "missing required fields");
+            } else if (!seenEmails.add(request.email())) {
+                results[i] = BulkImportRowResult.rejected(row, request.email(), "duplicated email in request");
+            } else {
+                candidates.put(request.email(), i);
+            }
+        }
+
+        for (String taken : customerDao.existsCustomersWithEmails(candidates.keySet())) {
+            int i = candidates.remove(taken);
+            results[i] = BulkImportRowResult.rejected(firstRow + i, taken, "email already taken");
+        }
+
+        List<Customer> customers = hashPasswords(chunk, candidates.values());
+        for (Customer inserted : customerDao.insertCustomers(customers)) {
+            int i = candidates.remove(inserted.getEmail());
+            results[i] = BulkImportRowResult.created(firstRow + i, inserted.getEmail(), inserted.getId());
+        }
+        candidates.forEach((email, i) ->
+                results[i] = BulkImportRowResult.rejected(firstRow + i, email, "email already taken"));
+
+        return List.of(results);
+    }
+
+    private List<Customer> hashPasswords(List<CustomerRegistrationRequest> chunk, Iterable<Integer> indexes) {
+        List<Future<Customer>> futures = new ArrayList<>();
+        for (int i : indexes) {
+            CustomerRegistrationRequest request = chunk.get(i);
+            futures.add(hashingExecutor.submit(() -> new Customer(
+                    request.name(),
+                    request.email(),
+                    request.age(),
+                    request.gender(),
+                    passwordEncoder.encode(request.password())
+            )));
+        }
+
+        List<Customer> customers = new ArrayList<>(futures.size());
+        try {
+            for (Future<Customer> future : futures) {
+                customers.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("customer import interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("password hashing failed", e.getCause());
+        }
+        return customers;
+    }
+
+    private static boolean isComplete(CustomerRegistrationRequest request) {
+        return request.name() != null
+                && request.email() != null
+                && request.age() != null
+                && request.gender() != null
+                && request.password() != null;
+    }
+
+    @Override
+    public void destroy() {
+        hashingExecutor.shutdownNow();
+    }
+}
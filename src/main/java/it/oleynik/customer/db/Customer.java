@@ -4,11 +4,9 @@ import it.oleynik.customer.Gender;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.List;
 
 @Data
 @Entity
@@ -46,6 +44,14 @@ public class Customer implements UserDetails {
     @Column(nullable = false)
     private String password;
 
+    @Column(nullable = false)
+    @Convert(converter = RolesConverter.class)
+    private Roles roles = Roles.USER;
+
+    // bumped by every update of the customer's data, exposed as the ETag
+    @Column(nullable = false)
+    private long version;
+
     public Customer() {
     }
 
@@ -62,9 +68,24 @@ public class Customer implements UserDetails {
         this.id = id;
     }
 
+    public Customer(Integer id, String name, String email, Integer age, Gender gender, String password, Roles roles) {
+        this(id, name, email, age, gender, password);
+        this.roles = roles;
+    }
+
+    Customer copy() {
+        Customer copy = new Customer(id, name, email, age, gender, password, roles);
+        copy.version = version;
+        return copy;
+    }
+
+    CustomerCredentials credentials() {
+        return new CustomerCredentials(id, name, email, age, gender, password, roles, version);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        return roles.authorities();
     }
 
     @Override
@@ -0,0 +1,280 @@
+package it.oleynik.customer.db;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import it.oleynik.customer.dto.CustomerDTO;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Repository("cache")
+public class CustomerCachingDataAccessService implements CustomerDao, MeterBinder {
+
+    private final CustomerDao delegate;
+    private final Cache<Integer, Customer> customersById;
+    private final Cache<String, Integer> idsByEmail;
+    // bumped after every write and before its eviction, a read that started earlier doesn't cache its row
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public CustomerCachingDataAccessService(BeanFactory beanFactory,
+                                            @Value("${customer.dao.backend:jdbc}") String backend,
+                                            @Value("${customer.cache.maximum-size:10000}") long maximumSize,
+                                            @Value("${customer.cache.ttl:5m}") Duration ttl) {
+        this(resolveBackend(beanFactory, backend), maximumSize, ttl);
+    }
+
+    public CustomerCachingDataAccessService(CustomerDao delegate, long maximumSize, Duration ttl) {
+        this.delegate = delegate;
+        this.customersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    private static CustomerDao resolveBackend(BeanFactory beanFactory, String backend) {
+        if ("cache".equals(backend)) {
+            throw new IllegalArgumentException("customer cache can't wrap itself");
+        }
+        return beanFactory.getBean(backend, CustomerDao.class);
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    @Override
+    public List<Customer> selectCustomersPage(Integer afterId, int limit) {
+        return delegate.selectCustomersPage(afterId, limit);
+    }
+
+    @Override
+    public List<CustomerDTO> selectAllCustomerDTOs() {
+        return delegate.selectAllCustomerDTOs();
+    }
+
+    @Override
+    public List<CustomerDTO> selectCustomerDTOsPage(Integer afterId, int limit) {
+        return delegate.selectCustomerDTOsPage(afterId, limit);
+    }
+
+    @Override
+    public List<CustomerDTO> searchCustomers(CustomerSearch search) {
+        return delegate.searchCustomers(search);
+    }
+
+    // the entity cache holds password hashes, so a response projection is read from the backend instead
+    @Override
+    public Optional<CustomerDTO> selectCustomerDTOById(Integer id) {
+        return delegate.selectCustomerDTOById(id);
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        delegate.streamAllCustomers(consumer);
+    }
+
+    @Override
+    public void streamAllCustomerDTOs(Consumer<CustomerDTO> consumer) {
+        delegate.streamAllCustomerDTOs(consumer);
+    }
+
+    @Override
+    public void streamAllEmails(Consumer<String> consumer) {
+        delegate.streamAllEmails(consumer);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        Customer cached = customersById.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached.copy());
+        }
+
+        long stamp = invalidations.get();
+        Optional<Customer> loaded = delegate.selectCustomerById(id);
+        loaded.ifPresent(customer -> putLoaded(customer, stamp));
+        return loaded;
+    }
+
+    // the returned row is complete, so it is cached instead of being loaded again on the first lookup by id
+    @Override
+    public Customer insertCustomer(Customer customer) {
+        Customer inserted = delegate.insertCustomer(customer);
+        put(inserted);
+        return inserted;
+    }
+
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        List<Customer> inserted = delegate.insertCustomers(customers);
+        customers.forEach(customer -> idsByEmail.invalidate(customer.getEmail()));
+        return inserted;
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        return cachedByEmail(email) != null || delegate.existsCustomerWithEmail(email);
+    }
+
+    @Override
+    public Set<String> existsCustomersWithEmails(Collection<String> emails) {
+        return delegate.existsCustomersWithEmails(emails);
+    }
+
+    @Override
+    public boolean existsCustomerWithId(Integer id) {
+        return customersById.getIfPresent(id) != null || delegate.existsCustomerWithId(id);
+    }
+
+    @Override
+    public Set<Integer> existsCustomersWithIds(Collection<Integer> ids) {
+        return delegate.existsCustomersWithIds(ids);
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id) {
+        int deleted = delegate.deleteCustomerById(id);
+        evict(id);
+        return deleted;
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id, long expectedVersion) {
+        int deleted = delegate.deleteCustomerById(id, expectedVersion);
+        evict(id);
+        return deleted;
+    }
+
+    // conditional requests must see the stored version, so this always goes to the backend
+    @Override
+    public Optional<Long> selectCustomerVersion(Integer id) {
+        return delegate.selectCustomerVersion(id);
+    }
+
+    @Override
+    public int updateCustomer(Customer customer) {
+        int updated = delegate.updateCustomer(customer);
+        evict(customer.getId());
+        return updated;
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update, Long expectedVersion) {
+        CustomerUpdateResult result = delegate.updateCustomer(id, update, expectedVersion);
+        if (result.customer() != null) {
+            invalidations.incrementAndGet();
+            put(result.customer());
+        } else if (result.status() != CustomerUpdateResult.Status.UNCHANGED) {
+            evict(id);
+        }
+        return result;
+    }
+
+    @Override
+    public int updateCustomerPassword(String email, String password) {
+        int updated = delegate.updateCustomerPassword(email, password);
+        Integer id = idsByEmail.getIfPresent(email);
+        if (id != null) {
+            evict(id);
+        } else {
+            invalidations.incrementAndGet();
+        }
+        return updated;
+    }
+
+    @Override
+    public Optional<Customer> selectUserByEmail(String email) {
+        Customer cached = cachedByEmail(email);
+        if (cached != null) {
+            return Optional.of(cached.copy());
+        }
+
+        long stamp = invalidations.get();
+        Optional<Customer> loaded = delegate.selectUserByEmail(email);
+        loaded.ifPresent(customer -> putLoaded(customer, stamp));
+        return loaded;
+    }
+
+    // authentication never trusts the cache, a password or role change on another instance must apply at once
+    @Override
+    public Optional<CustomerCredentials> selectCredentialsByEmail(String email) {
+        return delegate.selectCredentialsByEmail(email);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, customersById, "customer.cache.by-id");
+        CaffeineCacheMetrics.monitor(registry, idsByEmail, "customer.cache.by-email");
+    }
+
+    public CacheStats customerStats() {
+        return customersById.stats();
+    }
+
+    public CacheStats emailStats() {
+        return idsByEmail.stats();
+    }
+
+    public void invalidateAll() {
+        customersById.invalidateAll();
+        idsByEmail.invalidateAll();
+    }
+
+    private Customer cachedByEmail(String email) {
+        Integer id = idsByEmail.getIfPresent(email);
+        if (id == null) {
+            return null;
+        }
+
+        Customer cached = customersById.getIfPresent(id);
+        if (cached == null || !email.equals(cached.getEmail())) {
+            idsByEmail.invalidate(email);
+            return null;
+        }
+        return cached;
+    }
+
+    // a row returned by a write, concurrent writes may finish out of order so the higher version wins
+    private void put(Customer customer) {
+        customersById.asMap().compute(customer.getId(), (id, cached) ->
+                cached != null && cached.getVersion() > customer.getVersion() ? cached : customer.copy());
+        idsByEmail.put(customer.getEmail(), customer.getId());
+    }
+
+    // the check runs under the entry's lock, so an eviction either sees this row or this put sees its stamp
+    private void putLoaded(Customer customer, long stamp) {
+        customersById.asMap().compute(customer.getId(), (id, cached) ->
+                invalidations.get() != stamp ? cached : customer.copy());
+        idsByEmail.put(customer.getEmail(), customer.getId());
+    }
+
+    private void evict(Integer id) {
+        invalidations.incrementAndGet();
+        Customer cached = customersById.getIfPresent(id);
+        customersById.invalidate(id);
+        if (cached != null) {
+            idsByEmail.invalidate(cached.getEmail());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package it.oleynik.customer.db;
+
+import it.oleynik.customer.Gender;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+
+// the columns authentication and the login response need, read in one indexed lookup by email
+public record CustomerCredentials(Integer id,
+                                  String name,
+                                  String email,
+                                  Integer age,
+                                  Gender gender,
+                                  String password,
+                                  Roles roles,
+                                  long version) implements UserDetails {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles.authorities();
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
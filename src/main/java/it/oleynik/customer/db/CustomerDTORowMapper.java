@@ -0,0 +1,28 @@
+package it.oleynik.customer.db;
+
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.dto.CustomerDTO;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// maps the projection columns straight to the response, the password hash is never selected
+@Component
+public class CustomerDTORowMapper implements RowMapper<CustomerDTO> {
+
+    @Override
+    public CustomerDTO mapRow(ResultSet rs, int rowNum) throws SQLException {
+        String email = rs.getString("email");
+        return new CustomerDTO(
+                rs.getInt("id"),
+                rs.getString("name"),
+                email,
+                Gender.valueOf(rs.getString("gender")),
+                rs.getInt("age"),
+                Roles.of(rs.getString("roles")).names(),
+                email,
+                rs.getLong("version"));
+    }
+}
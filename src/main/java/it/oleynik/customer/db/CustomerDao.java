@@ -1,15 +1,89 @@
 package it.oleynik.customer.db;
 
+import it.oleynik.customer.dto.CustomerDTO;
+import it.oleynik.customer.dto.CustomerDTOMapper;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface CustomerDao {
+    int STREAM_PAGE_SIZE = 500;
+    CustomerDTOMapper DTO_MAPPER = new CustomerDTOMapper();
+
     List<Customer> selectAllCustomers();
+    List<Customer> selectCustomersPage(Integer afterId, int limit);
     Optional<Customer> selectCustomerById(Integer id);
-    void insertCustomer(Customer customer);
+    Customer insertCustomer(Customer customer);
+    List<Customer> insertCustomers(List<Customer> customers);
     boolean existsCustomerWithEmail(String email);
+    Set<String> existsCustomersWithEmails(Collection<String> emails);
     boolean existsCustomerWithId(Integer id);
-    void deleteCustomerById(Integer id);
-    void updateCustomer(Customer customer);
+    Set<Integer> existsCustomersWithIds(Collection<Integer> ids);
+    int deleteCustomerById(Integer id);
+    int deleteCustomerById(Integer id, long expectedVersion);
+    int updateCustomer(Customer customer);
+    CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update, Long expectedVersion);
+    Optional<Long> selectCustomerVersion(Integer id);
+    int updateCustomerPassword(String email, String password);
     Optional<Customer> selectUserByEmail(String email);
+    Optional<CustomerCredentials> selectCredentialsByEmail(String email);
+
+    default CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update) {
+        return updateCustomer(id, update, null);
+    }
+
+    // read-only projections, backends that can select fewer columns override these
+    default List<CustomerDTO> selectAllCustomerDTOs() {
+        return selectAllCustomers().stream().map(DTO_MAPPER).toList();
+    }
+
+    default List<CustomerDTO> selectCustomerDTOsPage(Integer afterId, int limit) {
+        return selectCustomersPage(afterId, limit).stream().map(DTO_MAPPER).toList();
+    }
+
+    default Optional<CustomerDTO> selectCustomerDTOById(Integer id) {
+        return selectCustomerById(id).map(DTO_MAPPER);
+    }
+
+    default List<CustomerDTO> searchCustomers(CustomerSearch search) {
+        return selectAllCustomers()
+                .stream()
+                .filter(search::matches)
+                .sorted(search.comparator())
+                .skip(search.offset())
+                .limit(search.limit())
+                .map(DTO_MAPPER)
+                .toList();
+    }
+
+    default void streamAllCustomers(Consumer<Customer> consumer) {
+        Integer afterId = null;
+        List<Customer> page;
+        do {
+            page = selectCustomersPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    default void streamAllCustomerDTOs(Consumer<CustomerDTO> consumer) {
+        Integer afterId = null;
+        List<CustomerDTO> page;
+        do {
+            page = selectCustomerDTOsPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).id();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    default void streamAllEmails(Consumer<String> consumer) {
+        streamAllCustomers(customer -> consumer.accept(customer.getEmail()));
+    }
 }
@@ -0,0 +1,327 @@
+package it.oleynik.customer.db;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import it.oleynik.customer.dto.CustomerDTO;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Answers "no such email" from an {@link EmailBloomFilter} before an existence check reaches the
+ * backend. The filter is built by streaming every email after startup and rebuilt in the background
+ * once new and stale (deleted or renamed) emails outgrow its capacity. Until the first build finishes
+ * every call goes to the backend.
+ * <p>
+ * The filter only sees writes made through this instance, so with several instances it can miss an
+ * email registered elsewhere. It is therefore only trusted where the unique constraint backs it up,
+ * the registration checks; authentication and password lookups always go to the backend.
+ */
+@Repository("bloom")
+@ConditionalOnProperty(name = "customer.email-filter.enabled", havingValue = "true", matchIfMissing = true)
+public class CustomerEmailFilterDataAccessService implements CustomerDao, MeterBinder,
+        SmartInitializingSingleton, DisposableBean {
+
+    private final CustomerDao delegate;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicLong staleEmails = new AtomicLong();
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private volatile EmailBloomFilter filter;
+    private volatile EmailBloomFilter building;
+
+    @Autowired
+    public CustomerEmailFilterDataAccessService(BeanFactory beanFactory,
+                                                @Value("${customer.dao.backend:jdbc}") String backend,
+                                                @Value("${customer.dao.cache:true}") boolean cache,
+                                                @Value("${customer.email-filter.expected-insertions:100000}") long expectedInsertions,
+                                                @Value("${customer.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this(beanFactory.getBean(cache ? "cache" : backend, CustomerDao.class), expectedInsertions, falsePositiveRate,
+                Executors.newSingleThreadExecutor(new CustomizableThreadFactory("customer-email-filter-")));
+    }
+
+    public CustomerEmailFilterDataAccessService(CustomerDao delegate,
+                                                long expectedInsertions,
+                                                double falsePositiveRate,
+                                                ExecutorService rebuildExecutor) {
+        this.delegate = delegate;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildExecutor = rebuildExecutor;
+        // a bad size or rate fails startup instead of the first background build
+        EmailBloomFilter.create(expectedInsertions, falsePositiveRate);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        scheduleRebuild();
+    }
+
+    public synchronized void rebuild() {
+        EmailBloomFilter current = filter;
+        long capacity = current == null
+                ? expectedInsertions
+                : Math.max(expectedInsertions, 2 * current.insertions());
+        EmailBloomFilter next = EmailBloomFilter.create(capacity, falsePositiveRate);
+
+        building = next;
+        try {
+            staleEmails.set(0);
+            delegate.streamAllEmails(next::put);
+            filter = next;
+            rebuilds.incrementAndGet();
+        } finally {
+            building = null;
+        }
+    }
+
+    public void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        rebuildExecutor.execute(() -> {
+            try {
+                rebuild();
+            } finally {
+                rebuildScheduled.set(false);
+            }
+        });
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        return !definitelyAbsent(email) && delegate.existsCustomerWithEmail(email);
+    }
+
+    @Override
+    public Set<String> existsCustomersWithEmails(Collection<String> emails) {
+        List<String> candidates = emails.stream()
+                .filter(email -> !definitelyAbsent(email))
+                .toList();
+        return candidates.isEmpty() ? Set.of() : delegate.existsCustomersWithEmails(candidates);
+    }
+
+    @Override
+    public Optional<Customer> selectUserByEmail(String email) {
+        return delegate.selectUserByEmail(email);
+    }
+
+    @Override
+    public Optional<CustomerCredentials> selectCredentialsByEmail(String email) {
+        return delegate.selectCredentialsByEmail(email);
+    }
+
+    @Override
+    public int updateCustomerPassword(String email, String password) {
+        return delegate.updateCustomerPassword(email, password);
+    }
+
+    @Override
+    public Customer insertCustomer(Customer customer) {
+        Customer inserted = delegate.insertCustomer(customer);
+        add(inserted.getEmail());
+        return inserted;
+    }
+
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        List<Customer> inserted = delegate.insertCustomers(customers);
+        inserted.forEach(customer -> add(customer.getEmail()));
+        return inserted;
+    }
+
+    // the previous email isn't known here, so every update counts as one stale entry
+    @Override
+    public int updateCustomer(Customer customer) {
+        int updated = delegate.updateCustomer(customer);
+        if (updated > 0) {
+            add(customer.getEmail());
+            markStale();
+        }
+        return updated;
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update, Long expectedVersion) {
+        CustomerUpdateResult result = delegate.updateCustomer(id, update, expectedVersion);
+        if (result.status() == CustomerUpdateResult.Status.UPDATED && update.email() != null) {
+            add(update.email());
+            markStale();
+        }
+        return result;
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id) {
+        int deleted = delegate.deleteCustomerById(id);
+        if (deleted > 0) {
+            markStale();
+        }
+        return deleted;
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id, long expectedVersion) {
+        int deleted = delegate.deleteCustomerById(id, expectedVersion);
+        if (deleted > 0) {
+            markStale();
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    @Override
+    public List<Customer> selectCustomersPage(Integer afterId, int limit) {
+        return delegate.selectCustomersPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        return delegate.selectCustomerById(id);
+    }
+
+    @Override
+    public List<CustomerDTO> selectAllCustomerDTOs() {
+        return delegate.selectAllCustomerDTOs();
+    }
+
+    @Override
+    public List<CustomerDTO> selectCustomerDTOsPage(Integer afterId, int limit) {
+        return delegate.selectCustomerDTOsPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<CustomerDTO> selectCustomerDTOById(Integer id) {
+        return delegate.selectCustomerDTOById(id);
+    }
+
+    @Override
+    public List<CustomerDTO> searchCustomers(CustomerSearch search) {
+        return delegate.searchCustomers(search);
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        delegate.streamAllCustomers(consumer);
+    }
+
+    @Override
+    public void streamAllCustomerDTOs(Consumer<CustomerDTO> consumer) {
+        delegate.streamAllCustomerDTOs(consumer);
+    }
+
+    @Override
+    public void streamAllEmails(Consumer<String> consumer) {
+        delegate.streamAllEmails(consumer);
+    }
+
+    @Override
+    public boolean existsCustomerWithId(Integer id) {
+        return delegate.existsCustomerWithId(id);
+    }
+
+    @Override
+    public Set<Integer> existsCustomersWithIds(Collection<Integer> ids) {
+        return delegate.existsCustomersWithIds(ids);
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Integer id) {
+        return delegate.selectCustomerVersion(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "customer.email-filter.size", "bytes", EmailBloomFilter::sizeInBytes);
+        gauge(registry, "customer.email-filter.insertions", null, EmailBloomFilter::insertions);
+        gauge(registry, "customer.email-filter.false-positive-rate", null, EmailBloomFilter::expectedFalsePositiveRate);
+        Gauge.builder("customer.email-filter.stale", staleEmails, AtomicLong::get)
+                .description("Deleted or renamed emails still set in the filter")
+                .register(registry);
+        FunctionCounter.builder("customer.email-filter.negatives", negatives, AtomicLong::get)
+                .description("Lookups answered without the backend")
+                .register(registry);
+        FunctionCounter.builder("customer.email-filter.rebuilds", rebuilds, AtomicLong::get)
+                .register(registry);
+    }
+
+    public long negatives() {
+        return negatives.get();
+    }
+
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void gauge(MeterRegistry registry, String name, String baseUnit, ToDoubleFunction<EmailBloomFilter> value) {
+        Gauge.builder(name, this, service -> {
+                    EmailBloomFilter current = service.filter;
+                    return current == null ? Double.NaN : value.applyAsDouble(current);
+                })
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+
+    private boolean definitelyAbsent(String email) {
+        EmailBloomFilter current = filter;
+        if (current == null || current.mightContain(email)) {
+            return false;
+        }
+        negatives.incrementAndGet();
+        return true;
+    }
+
+    // reads the filter being built before the live one: if no build was running yet, one starting
+    // later streams this already committed row, and a build that just finished has been published
+    private void add(String email) {
+        EmailBloomFilter next = building;
+        if (next != null) {
+            next.put(email);
+        }
+        EmailBloomFilter current = filter;
+        if (current != null) {
+            current.put(email);
+            checkCapacity(current);
+        }
+    }
+
+    private void markStale() {
+        staleEmails.incrementAndGet();
+        EmailBloomFilter current = filter;
+        if (current != null) {
+            checkCapacity(current);
+        }
+    }
+
+    private void checkCapacity(EmailBloomFilter current) {
+        if (current.insertions() + staleEmails.get() > current.capacity()) {
+            scheduleRebuild();
+        }
+    }
+}
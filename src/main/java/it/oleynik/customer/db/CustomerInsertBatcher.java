@@ -0,0 +1,202 @@
+package it.oleynik.customer.db;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.oleynik.exception.DuplicatedResourceException;
+import it.oleynik.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues registrations and inserts them in batches from a single writer thread. A batch is
+ * flushed once it holds {@code batchSize} rows or {@code maxDelay} after its first row, and each
+ * future completes only after the statement inserting its row has returned, i.e. committed.
+ * Futures complete on the writer thread, so anything expensive should run in an async stage.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.registration.write-behind.enabled", havingValue = "true")
+public class CustomerInsertBatcher implements DisposableBean {
+
+    // how long an idle writer sleeps before checking whether it was stopped
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final CustomerDao customerDao;
+    private final BlockingQueue<PendingInsert> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final ExecutorService writer;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+    private volatile boolean running = true;
+
+    private record PendingInsert(Customer customer, CompletableFuture<Customer> result) {
+    }
+
+    @Autowired
+    public CustomerInsertBatcher(CustomerDao customerDao,
+                                 @Value("${customer.registration.write-behind.queue-capacity:1024}") int queueCapacity,
+                                 @Value("${customer.registration.write-behind.batch-size:100}") int batchSize,
+                                 @Value("${customer.registration.write-behind.max-delay:5ms}") Duration maxDelay,
+                                 MeterRegistry meterRegistry) {
+        this(customerDao, queueCapacity, batchSize, maxDelay,
+                Executors.newSingleThreadExecutor(new CustomizableThreadFactory("customer-insert-")), meterRegistry);
+    }
+
+    public CustomerInsertBatcher(CustomerDao customerDao,
+                                 int queueCapacity,
+                                 int batchSize,
+                                 Duration maxDelay,
+                                 ExecutorService writer,
+                                 MeterRegistry meterRegistry) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be positive");
+        }
+        this.customerDao = customerDao;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.writer = writer;
+        this.batchSizes = DistributionSummary.builder("customer.insert.batch.size")
+                .description("Registrations inserted per statement")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("customer.insert.rejected")
+                .description("Registrations refused because the insert queue was full")
+                .register(meterRegistry);
+        Gauge.builder("customer.insert.queue.size", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        writer.execute(this::run);
+    }
+
+    // completes with the stored row, or with DuplicatedResourceException if the email was taken
+    public CompletableFuture<Customer> insert(Customer customer) {
+        PendingInsert pending = new PendingInsert(customer, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            rejected.increment();
+            throw new ServiceUnavailableException("registration queue is full, retry later");
+        }
+        // destroy() may have stopped the writer between the check and the offer
+        if (!running && queue.remove(pending)) {
+            throw new ServiceUnavailableException("registration writer stopped, retry later");
+        }
+        return pending.result();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+        List<PendingInsert> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        fail(leftover, new ServiceUnavailableException("registration writer stopped, retry later"));
+    }
+
+    // drains what is queued before exiting, so accepted registrations are still written on shutdown
+    private void run() {
+        List<PendingInsert> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                fail(batch, new ServiceUnavailableException("registration writer stopped, retry later"));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fill(List<PendingInsert> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    // the first registration of an email in the batch wins; ON CONFLICT DO NOTHING only returns the
+    // rows it inserted, so the rest lost their email to an existing customer
+    private void flush(List<PendingInsert> batch) {
+        List<PendingInsert> unique = new ArrayList<>(batch.size());
+        Set<String> emails = new HashSet<>();
+        for (PendingInsert pending : batch) {
+            if (emails.add(pending.customer().getEmail())) {
+                unique.add(pending);
+            } else {
+                pending.result().completeExceptionally(new DuplicatedResourceException("email already taken"));
+            }
+        }
+
+        List<Customer> inserted;
+        try {
+            inserted = customerDao.insertCustomers(unique.stream().map(PendingInsert::customer).toList());
+        } catch (RuntimeException e) {
+            // one bad row or a backend without ON CONFLICT mustn't fail the whole batch
+            unique.forEach(this::insertOne);
+            return;
+        }
+        batchSizes.record(unique.size());
+
+        Map<String, Customer> insertedByEmail = new HashMap<>();
+        inserted.forEach(customer -> insertedByEmail.put(customer.getEmail(), customer));
+        for (PendingInsert pending : unique) {
+            Customer customer = insertedByEmail.get(pending.customer().getEmail());
+            if (customer != null) {
+                pending.result().complete(customer);
+            } else {
+                pending.result().completeExceptionally(new DuplicatedResourceException("email already taken"));
+            }
+        }
+    }
+
+    private void insertOne(PendingInsert pending) {
+        try {
+            pending.result().complete(customerDao.insertCustomer(pending.customer()));
+        } catch (DuplicateKeyException e) {
+            pending.result().completeExceptionally(new DuplicatedResourceException("email already taken"));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private static void fail(List<PendingInsert> batch, RuntimeException e) {
+        batch.forEach(pending -> pending.result().completeExceptionally(e));
+    }
+}
@@ -1,36 +1,154 @@
 package it.oleynik.customer.db;
 
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.dto.CustomerDTO;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final CustomerDTORowMapper customerDTORowMapper;
 
-    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate,
+                                         CustomerRowMapper customerRowMapper,
+                                         CustomerDTORowMapper customerDTORowMapper) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.customerDTORowMapper = customerDTORowMapper;
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
         String sql = """
-                SELECT id, name, email, age, gender, password
+                SELECT id, name, email, age, gender, password, roles, version
                 FROM customer
                 """;
 
         return jdbcTemplate.query(sql, customerRowMapper);
     }
 
+    @Override
+    public List<Customer> selectCustomersPage(Integer afterId, int limit) {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(sql, customerRowMapper, afterId == null ? 0 : afterId, limit);
+    }
+
+    @Override
+    public List<CustomerDTO> selectAllCustomerDTOs() {
+        String sql = """
+                SELECT id, name, email, age, gender, roles, version
+                FROM customer
+                """;
+
+        return jdbcTemplate.query(sql, customerDTORowMapper);
+    }
+
+    @Override
+    public List<CustomerDTO> selectCustomerDTOsPage(Integer afterId, int limit) {
+        String sql = """
+                SELECT id, name, email, age, gender, roles, version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(sql, customerDTORowMapper, afterId == null ? 0 : afterId, limit);
+    }
+
+    @Override
+    public Optional<CustomerDTO> selectCustomerDTOById(Integer id) {
+        String sql = """
+                SELECT id, name, email, age, gender, roles, version
+                FROM customer WHERE id = ?
+                """;
+
+        return jdbcTemplate.query(sql, customerDTORowMapper, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<CustomerDTO> searchCustomers(CustomerSearch search) {
+        CustomerSearchQuery query = CustomerSearchQuery.from(search);
+        return jdbcTemplate.query(query.sql(), customerDTORowMapper, query.args().toArray());
+    }
+
+    // postgres only honours the fetch size inside a transaction, otherwise the whole result set is buffered
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> consumer) {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer
+                ORDER BY id
+                """;
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(customerRowMapper.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomerDTOs(Consumer<CustomerDTO> consumer) {
+        String sql = """
+                SELECT id, name, email, age, gender, roles, version
+                FROM customer
+                ORDER BY id
+                """;
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(customerDTORowMapper.mapRow(rs, rs.getRow())));
+    }
+
+    // narrow enough for an index-only scan of the unique email index, and never ships passwords
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllEmails(Consumer<String> consumer) {
+        String sql = "SELECT email FROM customer";
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(rs.getString(1)));
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         String sql = """
-                SELECT id, name, email, age, gender, password
+                SELECT id, name, email, age, gender, password, roles, version
                 FROM customer WHERE id = ?
                 """;
 
@@ -40,63 +158,244 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
+    public Customer insertCustomer(Customer customer) {
         var sql = """
-                INSERT INTO customer(name, email, age, gender, password)
-                VALUES (?, ?, ?, ?, ?)
+                INSERT INTO customer(name, email, age, gender, password, roles)
+                VALUES (?, ?, ?, ?, ?, ?)
+                RETURNING id, name, email, age, gender, password, roles, version
                 """;
-        jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge(),
-                customer.getGender().name(), customer.getPassword());
+        return jdbcTemplate.queryForObject(sql, customerRowMapper, customer.getName(), customer.getEmail(),
+                customer.getAge(), customer.getGender().name(), customer.getPassword(), customer.getRoles().value());
+    }
+
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return List.of();
+        }
+
+        var sql = """
+                INSERT INTO customer(name, email, age, gender, password, roles)
+                SELECT *
+                FROM unnest(?::text[], ?::text[], ?::int[], ?::text[], ?::text[], ?::text[])
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id, name, email, age, gender, password, roles, version
+                """;
+
+        int size = customers.size();
+        String[] names = new String[size];
+        String[] emails = new String[size];
+        Integer[] ages = new Integer[size];
+        String[] genders = new String[size];
+        String[] passwords = new String[size];
+        String[] roles = new String[size];
+        for (int i = 0; i < size; i++) {
+            Customer customer = customers.get(i);
+            names[i] = customer.getName();
+            emails[i] = customer.getEmail();
+            ages[i] = customer.getAge();
+            genders[i] = customer.getGender().name();
+            passwords[i] = customer.getPassword();
+            roles[i] = customer.getRoles().value();
+        }
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("text", names));
+            ps.setArray(2, con.createArrayOf("text", emails));
+            ps.setArray(3, con.createArrayOf("int4", ages));
+            ps.setArray(4, con.createArrayOf("text", genders));
+            ps.setArray(5, con.createArrayOf("text", passwords));
+            ps.setArray(6, con.createArrayOf("text", roles));
+            return ps;
+        }, customerRowMapper);
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
         String sql = """
-                SELECT count(id)
-                FROM customer WHERE email = ?
+                SELECT EXISTS (
+                    SELECT 1 FROM customer WHERE email = ?
+                )
                 """;
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, email);
 
-        return count != null && count > 0;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, email));
+    }
+
+    @Override
+    public Set<String> existsCustomersWithEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+
+        String sql = """
+                SELECT email
+                FROM customer WHERE email = ANY (?)
+                """;
+
+        return new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("text", emails.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getString("email")));
     }
 
     @Override
     public boolean existsCustomerWithId(Integer id) {
         String sql = """
-                SELECT count(id)
-                FROM customer WHERE id = ?
+                SELECT EXISTS (
+                    SELECT 1 FROM customer WHERE id = ?
+                )
                 """;
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
 
-        return count != null && count > 0;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
+    public Set<Integer> existsCustomersWithIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+
+        String sql = """
+                SELECT id
+                FROM customer WHERE id = ANY (?)
+                """;
+
+        return new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("int4", ids.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getInt("id")));
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id) {
         String sql = """
                 DELETE
                 FROM customer
                 WHERE id = ?
                 """;
-        jdbcTemplate.update(sql, id);
+        return jdbcTemplate.update(sql, id);
+    }
 
+    @Override
+    public int deleteCustomerById(Integer id, long expectedVersion) {
+        String sql = """
+                DELETE
+                FROM customer
+                WHERE id = ? AND version = ?
+                """;
+        return jdbcTemplate.update(sql, id, expectedVersion);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
+    public int updateCustomer(Customer customer) {
         var sql = """
                 UPDATE customer
-                SET name = ?, email = ?, age = ?, gender = ?, password = ?
+                SET name = ?, email = ?, age = ?, gender = ?, password = ?, roles = ?, version = version + 1
                 WHERE id = ?
                 """;
-        jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge(),
-                customer.getGender().name(), customer.getPassword(), customer.getId());
+        return jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge(),
+                customer.getGender().name(), customer.getPassword(), customer.getRoles().value(), customer.getId());
+    }
+
+    @Override
+    public int updateCustomerPassword(String email, String password) {
+        var sql = """
+                UPDATE customer
+                SET password = ?
+                WHERE email = ?
+                """;
+        return jdbcTemplate.update(sql, password, email);
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Integer id) {
+        String sql = """
+                SELECT version
+                FROM customer WHERE id = ?
+                """;
+
+        return jdbcTemplate.queryForList(sql, Long.class, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update, Long expectedVersion) {
+        if (update.isEmpty()) {
+            return selectCustomerVersion(id)
+                    .map(version -> expectedVersion == null || expectedVersion.equals(version)
+                            ? CustomerUpdateResult.unchanged()
+                            : CustomerUpdateResult.versionMismatch())
+                    .orElseGet(CustomerUpdateResult::notFound);
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (update.name() != null) {
+            columns.add("name");
+            values.add(update.name());
+        }
+        if (update.email() != null) {
+            columns.add("email");
+            values.add(update.email());
+        }
+        if (update.age() != null) {
+            columns.add("age");
+            values.add(update.age());
+        }
+        if (update.gender() != null) {
+            columns.add("gender");
+            values.add(update.gender().name());
+        }
+
+        // target sees the row as it was before the update, its version tells a stale If-Match from a no-op
+        var sql = """
+                WITH target AS (
+                    SELECT id, version FROM customer WHERE id = ?
+                ), updated AS (
+                    UPDATE customer
+                    SET %s, version = version + 1
+                    WHERE id = ? AND (%s)%s
+                    RETURNING id, name, email, age, gender, password, roles, version
+                )
+                SELECT target.version AS current_version, updated.*
+                FROM target LEFT JOIN updated ON true
+                """.formatted(
+                columns.stream().map(column -> column + " = ?").collect(Collectors.joining(", ")),
+                columns.stream().map(column -> column + " IS DISTINCT FROM ?").collect(Collectors.joining(" OR ")),
+                expectedVersion == null ? "" : " AND version = ?"
+        );
+
+        List<Object> args = new ArrayList<>();
+        args.add(id);
+        args.addAll(values);
+        args.add(id);
+        args.addAll(values);
+        if (expectedVersion != null) {
+            args.add(expectedVersion);
+        }
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+                            if (rs.getObject("id") != null) {
+                                return CustomerUpdateResult.updated(customerRowMapper.mapRow(rs, rowNum));
+                            }
+                            return expectedVersion == null || expectedVersion == rs.getLong("current_version")
+                                    ? CustomerUpdateResult.unchanged()
+                                    : CustomerUpdateResult.versionMismatch();
+                        },
+                        args.toArray())
+                .stream()
+                .findFirst()
+                .orElseGet(CustomerUpdateResult::notFound);
     }
 
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
         String sql = """
-                SELECT id, name, email, age, gender, password
+                SELECT id, name, email, age, gender, password, roles, version
                 FROM customer WHERE email = ?
                 """;
 
@@ -104,4 +403,24 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
                 .stream()
                 .findFirst();
     }
+
+    @Override
+    public Optional<CustomerCredentials> selectCredentialsByEmail(String email) {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer WHERE email = ?
+                """;
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new CustomerCredentials(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getString("email"),
+                        rs.getInt("age"),
+                        Gender.valueOf(rs.getString("gender")),
+                        rs.getString("password"),
+                        Roles.of(rs.getString("roles")),
+                        rs.getLong("version")), email)
+                .stream()
+                .findFirst();
+    }
 }
@@ -1,9 +1,14 @@
 package it.oleynik.customer.db;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
@@ -19,14 +24,30 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.findAll();
     }
 
+    @Override
+    public List<Customer> selectCustomersPage(Integer afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0 : afterId, PageRequest.of(0, limit));
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         return customerRepository.findById(id);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public Customer insertCustomer(Customer customer) {
+        return customerRepository.save(customer);
+    }
+
+    // skips taken emails and repeats within the list like ON CONFLICT DO NOTHING, a row inserted
+    // concurrently after the check still fails the whole saveAll
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        Set<String> taken = existsCustomersWithEmails(customers.stream().map(Customer::getEmail).toList());
+        Set<String> seen = new HashSet<>(taken);
+        return customerRepository.saveAll(customers.stream()
+                .filter(customer -> seen.add(customer.getEmail()))
+                .toList());
     }
 
     @Override
@@ -34,23 +55,85 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.existsCustomerByEmail(email);
     }
 
+    @Override
+    public Set<String> existsCustomersWithEmails(Collection<String> emails) {
+        return emails.isEmpty() ? Set.of() : new HashSet<>(customerRepository.findEmailsIn(emails));
+    }
+
     @Override
     public boolean existsCustomerWithId(Integer id) {
         return customerRepository.existsCustomerById(id);
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
-        customerRepository.deleteById(id);
+    public Set<Integer> existsCustomersWithIds(Collection<Integer> ids) {
+        return ids.isEmpty() ? Set.of() : new HashSet<>(customerRepository.findIdsIn(ids));
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id) {
+        return customerRepository.deleteCustomerById(id);
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id, long expectedVersion) {
+        return customerRepository.deleteCustomerByIdAndVersion(id, expectedVersion);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public int updateCustomer(Customer customer) {
+        return customerRepository.updateCustomerById(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getAge(), customer.getGender(), customer.getPassword(), customer.getRoles());
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Integer id) {
+        return customerRepository.findVersionById(id);
+    }
+
+    @Override
+    public int updateCustomerPassword(String email, String password) {
+        return customerRepository.updatePasswordByEmail(email, password);
+    }
+
+    // the change is applied to a copy, a managed entity left dirty would be flushed without the version check
+    @Override
+    public CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update, Long expectedVersion) {
+        Optional<Customer> existing = customerRepository.findById(id);
+        if (existing.isEmpty()) {
+            return CustomerUpdateResult.notFound();
+        }
+
+        Customer customer = existing.get().copy();
+        if (expectedVersion != null && expectedVersion != customer.getVersion()) {
+            return CustomerUpdateResult.versionMismatch();
+        }
+        if (update.email() != null && !update.email().equals(customer.getEmail())
+                && customerRepository.existsCustomerByEmail(update.email())) {
+            throw new DuplicateKeyException("email already taken");
+        }
+        if (!update.applyTo(customer)) {
+            return CustomerUpdateResult.unchanged();
+        }
+
+        int updated = customerRepository.updateCustomerByIdAndVersion(id, customer.getName(), customer.getEmail(),
+                customer.getAge(), customer.getGender(), customer.getVersion());
+        if (updated == 0) {
+            return customerRepository.existsCustomerById(id)
+                    ? CustomerUpdateResult.versionMismatch()
+                    : CustomerUpdateResult.notFound();
+        }
+        customer.setVersion(customer.getVersion() + 1);
+        return CustomerUpdateResult.updated(customer);
     }
 
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
         return customerRepository.findByEmail(email);
     }
+
+    @Override
+    public Optional<CustomerCredentials> selectCredentialsByEmail(String email) {
+        return customerRepository.findCredentialsByEmail(email);
+    }
 }
@@ -1,64 +1,244 @@
 package it.oleynik.customer.db;
 
 import it.oleynik.customer.Gender;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
 
-    private static final List<Customer> customers;
+    private final ConcurrentMap<Integer, Customer> customersById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
 
-    static {
-        customers = new ArrayList<>();
-        customers.add(new Customer(1, "Vova", "oleynik@gmail.com", 15, Gender.FEMALE, "foobar"));
-        customers.add(new Customer(2, "Borys", "oleynik@gmail.com", 18, Gender.MALE, "foobar"));
+    public CustomerListDataAccessService() {
+        this(List.of(
+                new Customer(1, "Vova", "oleynik@gmail.com", 15, Gender.FEMALE, "foobar"),
+                new Customer(2, "Borys", "borys@gmail.com", 18, Gender.MALE, "foobar")
+        ));
+    }
+
+    public CustomerListDataAccessService(Collection<Customer> seed) {
+        seed.forEach(this::store);
+    }
+
+    public record Snapshot(List<Customer> customers, int lastId) {
+    }
+
+    // point-in-time copy, writers running concurrently may or may not be included
+    public Snapshot snapshot() {
+        return new Snapshot(selectAllCustomers(), lastId.get());
+    }
+
+    public void restore(Snapshot snapshot) {
+        customersById.clear();
+        idsByEmail.clear();
+        lastId.set(0);
+        snapshot.customers().forEach(this::store);
+        lastId.accumulateAndGet(snapshot.lastId(), Math::max);
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
-        return customers;
+        return customersById.values()
+                .stream()
+                .sorted(Comparator.comparing(Customer::getId))
+                .map(Customer::copy)
+                .toList();
+    }
+
+    // ids are sequential, so walking them from the cursor is cheaper than sorting the whole map
+    @Override
+    public List<Customer> selectCustomersPage(Integer afterId, int limit) {
+        List<Customer> page = new ArrayList<>(limit);
+        int last = lastId.get();
+        for (int id = afterId == null ? 1 : afterId + 1; id > 0 && id <= last && page.size() < limit; id++) {
+            Customer customer = customersById.get(id);
+            if (customer != null) {
+                page.add(customer.copy());
+            }
+        }
+        return page;
     }
 
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
-        return customers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(customersById.get(id)).map(Customer::copy);
     }
 
     @Override
-    public void insertCustomer(Customer customer) {
-        customers.add(customer);
+    public Customer insertCustomer(Customer customer) {
+        return insert(customer);
+    }
+
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        List<Customer> inserted = new ArrayList<>();
+        for (Customer customer : customers) {
+            try {
+                inserted.add(insert(customer));
+            } catch (DuplicateKeyException e) {
+                // skipped like ON CONFLICT DO NOTHING in the jdbc implementation
+            }
+        }
+        return inserted;
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
-        return customers.stream().anyMatch(c -> c.getEmail().equals(email));
+        return idsByEmail.containsKey(email);
+    }
+
+    @Override
+    public Set<String> existsCustomersWithEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (String email : emails) {
+            if (idsByEmail.containsKey(email)) {
+                existing.add(email);
+            }
+        }
+        return existing;
     }
 
     @Override
     public boolean existsCustomerWithId(Integer id) {
-        return customers.stream().anyMatch(c -> c.getId().equals(id));
+        return customersById.containsKey(id);
     }
 
     @Override
-    public void deleteCustomerById(Integer id) {
-        customers.removeIf(c -> c.getId().equals(id));
+    public Set<Integer> existsCustomersWithIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (Integer id : ids) {
+            if (customersById.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customers.add(customer);
+    public int deleteCustomerById(Integer id) {
+        Customer removed = customersById.remove(id);
+        if (removed == null) {
+            return 0;
+        }
+        idsByEmail.remove(removed.getEmail(), id);
+        return 1;
+    }
+
+    @Override
+    public int deleteCustomerById(Integer id, long expectedVersion) {
+        Customer current = customersById.get(id);
+        if (current == null || current.getVersion() != expectedVersion || !customersById.remove(id, current)) {
+            return 0;
+        }
+        idsByEmail.remove(current.getEmail(), id);
+        return 1;
+    }
+
+    @Override
+    public int updateCustomer(Customer customer) {
+        Customer replacement = customer.copy();
+        return customersById.computeIfPresent(customer.getId(), (id, current) -> {
+            moveEmail(id, current.getEmail(), replacement.getEmail());
+            replacement.setVersion(current.getVersion() + 1);
+            return replacement;
+        }) == null ? 0 : 1;
+    }
+
+    @Override
+    public int updateCustomerPassword(String email, String password) {
+        Integer id = idsByEmail.get(email);
+        if (id == null) {
+            return 0;
+        }
+
+        return customersById.computeIfPresent(id, (key, current) -> {
+            Customer updated = current.copy();
+            updated.setPassword(password);
+            return updated;
+        }) == null ? 0 : 1;
+    }
+
+    @Override
+    public Optional<Long> selectCustomerVersion(Integer id) {
+        return Optional.ofNullable(customersById.get(id)).map(Customer::getVersion);
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomer(Integer id, CustomerUpdate update, Long expectedVersion) {
+        CustomerUpdateResult[] result = {CustomerUpdateResult.notFound()};
+        customersById.computeIfPresent(id, (key, current) -> {
+            if (expectedVersion != null && expectedVersion != current.getVersion()) {
+                result[0] = CustomerUpdateResult.versionMismatch();
+                return current;
+            }
+            Customer updated = current.copy();
+            if (!update.applyTo(updated)) {
+                result[0] = CustomerUpdateResult.unchanged();
+                return current;
+            }
+            moveEmail(id, current.getEmail(), updated.getEmail());
+            updated.setVersion(current.getVersion() + 1);
+            result[0] = CustomerUpdateResult.updated(updated.copy());
+            return updated;
+        });
+        return result[0];
     }
 
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
-        return customers.stream()
-                .filter(c -> c.getEmail().equals(email))
-                .findFirst();
+        Integer id = idsByEmail.get(email);
+        return id == null ? Optional.empty() : selectCustomerById(id);
+    }
+
+    @Override
+    public Optional<CustomerCredentials> selectCredentialsByEmail(String email) {
+        return selectUserByEmail(email).map(Customer::credentials);
+    }
+
+    private Customer insert(Customer customer) {
+        if (idsByEmail.containsKey(customer.getEmail())) {
+            throw new DuplicateKeyException("email already taken");
+        }
+
+        Customer stored = customer.copy();
+        stored.setId(lastId.incrementAndGet());
+        if (idsByEmail.putIfAbsent(stored.getEmail(), stored.getId()) != null) {
+            throw new DuplicateKeyException("email already taken");
+        }
+        customersById.put(stored.getId(), stored);
+        return stored.copy();
+    }
+
+    private void store(Customer customer) {
+        Customer stored = customer.copy();
+        if (idsByEmail.putIfAbsent(stored.getEmail(), stored.getId()) != null) {
+            throw new IllegalArgumentException("duplicated email %s".formatted(stored.getEmail()));
+        }
+        customersById.put(stored.getId(), stored);
+        lastId.accumulateAndGet(stored.getId(), Math::max);
+    }
+
+    // claims the new email before the old one is released, so a racing insert can't take it in between
+    private void moveEmail(Integer id, String oldEmail, String newEmail) {
+        if (oldEmail.equals(newEmail)) {
+            return;
+        }
+        if (idsByEmail.putIfAbsent(newEmail, id) != null) {
+            throw new DuplicateKeyException("email already taken");
+        }
+        idsByEmail.remove(oldEmail, id);
     }
 }
@@ -0,0 +1,222 @@
+package it.oleynik.customer.db;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import it.oleynik.customer.Gender;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository("r2dbc")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDao {
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2dbcDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // the driver pulls rows from a portal in fetch-size batches as the subscriber requests them
+    @Override
+    public Flux<Customer> selectAllCustomers() {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer
+                ORDER BY id
+                """;
+
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(CustomerR2dbcDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersPage(Integer afterId, int limit) {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId == null ? 0 : afterId)
+                .bind("limit", limit)
+                .map(CustomerR2dbcDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Integer id) {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer
+                WHERE id = :id
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::mapRow)
+                .one();
+    }
+
+    @Override
+    public Mono<Customer> selectUserByEmail(String email) {
+        String sql = """
+                SELECT id, name, email, age, gender, password, roles, version
+                FROM customer
+                WHERE email = :email
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(CustomerR2dbcDataAccessService::mapRow)
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> existsCustomerWithEmail(String email) {
+        String sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE email = :email)
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map((row, metadata) -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> existsCustomerWithId(Integer id) {
+        String sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE id = :id)
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map((row, metadata) -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Customer> insertCustomer(Customer customer) {
+        String sql = """
+                INSERT INTO customer(name, email, age, gender, password, roles)
+                VALUES (:name, :email, :age, :gender, :password, :roles)
+                RETURNING id, name, email, age, gender, password, roles, version
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .bind("gender", customer.getGender().name())
+                .bind("password", customer.getPassword())
+                .bind("roles", customer.getRoles().value())
+                .map(CustomerR2dbcDataAccessService::mapRow)
+                .one();
+    }
+
+    @Override
+    public Mono<Long> deleteCustomerById(Integer id) {
+        String sql = """
+                DELETE
+                FROM customer
+                WHERE id = :id
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Override
+    public Mono<CustomerUpdateResult> updateCustomer(Integer id, CustomerUpdate update) {
+        if (update.isEmpty()) {
+            return existsCustomerWithId(id)
+                    .map(exists -> exists ? CustomerUpdateResult.unchanged() : CustomerUpdateResult.notFound());
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (update.name() != null) {
+            values.put("name", update.name());
+        }
+        if (update.email() != null) {
+            values.put("email", update.email());
+        }
+        if (update.age() != null) {
+            values.put("age", update.age());
+        }
+        if (update.gender() != null) {
+            values.put("gender", update.gender().name());
+        }
+
+        var sql = """
+                WITH target AS (
+                    SELECT id FROM customer WHERE id = :id
+                ), updated AS (
+                    UPDATE customer
+                    SET %s, version = version + 1
+                    WHERE id = :id AND (%s)
+                    RETURNING id, name, email, age, gender, password, roles, version
+                )
+                SELECT updated.*
+                FROM target LEFT JOIN updated ON true
+                """.formatted(
+                values.keySet().stream().map(column -> column + " = :" + column).collect(Collectors.joining(", ")),
+                values.keySet().stream().map(column -> column + " IS DISTINCT FROM :" + column).collect(Collectors.joining(" OR "))
+        );
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", id);
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = spec.bind(value.getKey(), value.getValue());
+        }
+
+        return spec.map((row, metadata) -> row.get("id") == null
+                        ? CustomerUpdateResult.unchanged()
+                        : CustomerUpdateResult.updated(mapRow(row, metadata)))
+                .first()
+                .defaultIfEmpty(CustomerUpdateResult.notFound());
+    }
+
+    @Override
+    public Mono<Long> updateCustomerPassword(String email, String password) {
+        String sql = """
+                UPDATE customer
+                SET password = :password
+                WHERE email = :email
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("password", password)
+                .bind("email", email)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Customer mapRow(Row row, RowMetadata metadata) {
+        Customer customer = new Customer(
+                row.get("id", Integer.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                Gender.valueOf(row.get("gender", String.class)),
+                row.get("password", String.class),
+                Roles.of(row.get("roles", String.class))
+        );
+        customer.setVersion(row.get("version", Long.class));
+        return customer;
+    }
+}
@@ -1,11 +1,67 @@
 package it.oleynik.customer.db;
 
+import it.oleynik.customer.Gender;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
     boolean existsCustomerByEmail(String email);
     boolean existsCustomerById(Integer id);
     Optional<Customer> findByEmail(String email);
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+    @Query("SELECT new it.oleynik.customer.db.CustomerCredentials(c.id, c.name, c.email, c.age, c.gender, c.password, c.roles, c.version) FROM Customer c WHERE c.email = :email")
+    Optional<CustomerCredentials> findCredentialsByEmail(String email);
+
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    List<String> findEmailsIn(Collection<String> emails);
+
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN :ids")
+    List<Integer> findIdsIn(Collection<Integer> ids);
+
+    @Query("SELECT c.version FROM Customer c WHERE c.id = :id")
+    Optional<Long> findVersionById(Integer id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id")
+    int deleteCustomerById(Integer id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id AND c.version = :version")
+    int deleteCustomerByIdAndVersion(Integer id, long version);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            UPDATE Customer c
+            SET c.name = :name, c.email = :email, c.age = :age, c.gender = :gender,
+                c.password = :password, c.roles = :roles, c.version = c.version + 1
+            WHERE c.id = :id
+            """)
+    int updateCustomerById(Integer id, String name, String email, Integer age, Gender gender,
+                           String password, Roles roles);
+
+    // only matches the version the change was computed from, so a concurrent writer can't be overwritten
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            UPDATE Customer c
+            SET c.name = :name, c.email = :email, c.age = :age, c.gender = :gender, c.version = c.version + 1
+            WHERE c.id = :id AND c.version = :version
+            """)
+    int updateCustomerByIdAndVersion(Integer id, String name, String email, Integer age, Gender gender, long version);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Customer c SET c.password = :password WHERE c.email = :email")
+    int updatePasswordByEmail(String email, String password);
 }
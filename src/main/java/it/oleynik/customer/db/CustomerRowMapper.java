@@ -12,12 +12,15 @@ public class CustomerRowMapper implements RowMapper<Customer> {
 
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new Customer(
+        Customer customer = new Customer(
                 rs.getInt("id"),
                 rs.getString("name"),
                 rs.getString("email"),
                 rs.getInt("age"),
                 Gender.valueOf(rs.getString("gender")),
-                rs.getString("password"));
+                rs.getString("password"),
+                Roles.of(rs.getString("roles")));
+        customer.setVersion(rs.getLong("version"));
+        return customer;
     }
 }
@@ -0,0 +1,50 @@
+package it.oleynik.customer.db;
+
+import it.oleynik.customer.Gender;
+
+import java.util.Comparator;
+
+public record CustomerSearch(
+        String namePrefix,
+        String email,
+        Integer minAge,
+        Integer maxAge,
+        Gender gender,
+        SortField sortBy,
+        boolean descending,
+        int limit,
+        int offset
+) {
+
+    public enum SortField {
+        ID("id", Comparator.comparing(Customer::getId)),
+        NAME("name", Comparator.comparing(Customer::getName)),
+        AGE("age", Comparator.comparing(Customer::getAge));
+
+        private final String column;
+        private final Comparator<Customer> comparator;
+
+        SortField(String column, Comparator<Customer> comparator) {
+            this.column = column;
+            this.comparator = comparator;
+        }
+
+        public String column() {
+            return column;
+        }
+    }
+
+    boolean matches(Customer customer) {
+        return (namePrefix == null || customer.getName().startsWith(namePrefix))
+                && (email == null || customer.getEmail().equalsIgnoreCase(email))
+                && (minAge == null || customer.getAge() >= minAge)
+                && (maxAge == null || customer.getAge() <= maxAge)
+                && (gender == null || customer.getGender() == gender);
+    }
+
+    // id breaks ties, the same as the sql ORDER BY, so offsets are stable
+    Comparator<Customer> comparator() {
+        Comparator<Customer> comparator = sortBy.comparator.thenComparing(Customer::getId);
+        return descending ? comparator.reversed() : comparator;
+    }
+}
@@ -0,0 +1,57 @@
+package it.oleynik.customer.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the sql for a {@link CustomerSearch}. Only filters that are set end up in the WHERE
+ * clause, so each combination gets a plan that can use its index from V3.
+ */
+public record CustomerSearchQuery(String sql, List<Object> args) {
+
+    public static CustomerSearchQuery from(CustomerSearch search) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (search.namePrefix() != null) {
+            conditions.add("name LIKE ?");
+            args.add(escapeLike(search.namePrefix()) + "%");
+        }
+        if (search.email() != null) {
+            conditions.add("lower(email) = lower(?)");
+            args.add(search.email());
+        }
+        if (search.minAge() != null) {
+            conditions.add("age >= ?");
+            args.add(search.minAge());
+        }
+        if (search.maxAge() != null) {
+            conditions.add("age <= ?");
+            args.add(search.maxAge());
+        }
+        if (search.gender() != null) {
+            conditions.add("gender = ?");
+            args.add(search.gender().name());
+        }
+
+        String direction = search.descending() ? "DESC" : "ASC";
+        String sql = """
+                SELECT id, name, email, age, gender, roles, version
+                FROM customer
+                %s
+                ORDER BY %s %s, id %s
+                LIMIT ? OFFSET ?
+                """.formatted(
+                conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions),
+                search.sortBy().column(), direction, direction);
+        args.add(search.limit());
+        args.add(search.offset());
+
+        return new CustomerSearchQuery(sql, List.copyOf(args));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,38 @@
+package it.oleynik.customer.db;
+
+import it.oleynik.customer.Gender;
+
+public record CustomerUpdate(
+        String name,
+        String email,
+        Integer age,
+        Gender gender
+) {
+
+    public boolean isEmpty() {
+        return name == null && email == null && age == null && gender == null;
+    }
+
+    boolean applyTo(Customer customer) {
+        boolean changed = false;
+
+        if (name != null && !name.equals(customer.getName())) {
+            customer.setName(name);
+            changed = true;
+        }
+        if (email != null && !email.equals(customer.getEmail())) {
+            customer.setEmail(email);
+            changed = true;
+        }
+        if (age != null && !age.equals(customer.getAge())) {
+            customer.setAge(age);
+            changed = true;
+        }
+        if (gender != null && !gender.equals(customer.getGender())) {
+            customer.setGender(gender);
+            changed = true;
+        }
+
+        return changed;
+    }
+}
@@ -0,0 +1,27 @@
+package it.oleynik.customer.db;
+
+public record CustomerUpdateResult(Status status, Customer customer) {
+
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        NOT_FOUND,
+        VERSION_MISMATCH
+    }
+
+    public static CustomerUpdateResult updated(Customer customer) {
+        return new CustomerUpdateResult(Status.UPDATED, customer);
+    }
+
+    public static CustomerUpdateResult unchanged() {
+        return new CustomerUpdateResult(Status.UNCHANGED, null);
+    }
+
+    public static CustomerUpdateResult notFound() {
+        return new CustomerUpdateResult(Status.NOT_FOUND, null);
+    }
+
+    public static CustomerUpdateResult versionMismatch() {
+        return new CustomerUpdateResult(Status.VERSION_MISMATCH, null);
+    }
+}
@@ -0,0 +1,17 @@
+package it.oleynik.customer.db;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCustomerDao {
+    Flux<Customer> selectAllCustomers();
+    Flux<Customer> selectCustomersPage(Integer afterId, int limit);
+    Mono<Customer> selectCustomerById(Integer id);
+    Mono<Customer> selectUserByEmail(String email);
+    Mono<Boolean> existsCustomerWithEmail(String email);
+    Mono<Boolean> existsCustomerWithId(Integer id);
+    Mono<Customer> insertCustomer(Customer customer);
+    Mono<Long> deleteCustomerById(Integer id);
+    Mono<CustomerUpdateResult> updateCustomer(Integer id, CustomerUpdate update);
+    Mono<Long> updateCustomerPassword(String email, String password);
+}
@@ -0,0 +1,90 @@
+package it.oleynik.customer.db;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * A customer's roles, stored as a comma separated text column. Sets made only of known roles are
+ * interned by their normalized value, so every customer with the same roles shares one immutable
+ * name list and one authority list instead of allocating them on each call.
+ */
+public final class Roles {
+
+    private static final Set<String> KNOWN = Set.of("ROLE_USER", "ROLE_ADMIN");
+    private static final int MAX_INTERNED = 64;
+    private static final ConcurrentMap<String, Roles> CANONICAL = new ConcurrentHashMap<>();
+
+    public static final Roles USER = of("ROLE_USER");
+
+    private final String value;
+    private final List<String> names;
+    private final List<GrantedAuthority> authorities;
+
+    private Roles(String value, List<String> names) {
+        this.value = value;
+        this.names = names;
+        this.authorities = names.stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+
+    // values come from the roles column, so a lookup by the raw value usually hits; on a miss the
+    // value is normalized, and only sets of known roles are interned, with the raw spelling capped
+    // so that odd spellings of the same set can't grow the map without bound
+    public static Roles of(String value) {
+        Roles roles = CANONICAL.get(value);
+        if (roles != null) {
+            return roles;
+        }
+
+        List<String> names = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(Predicate.not(String::isEmpty))
+                .distinct()
+                .sorted()
+                .toList();
+        String normalized = String.join(",", names);
+        if (!KNOWN.containsAll(names)) {
+            return new Roles(normalized, names);
+        }
+        Roles canonical = CANONICAL.computeIfAbsent(normalized, key -> new Roles(key, names));
+        if (CANONICAL.size() < MAX_INTERNED) {
+            CANONICAL.putIfAbsent(value, canonical);
+        }
+        return canonical;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Roles roles && value.equals(roles.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,18 @@
+package it.oleynik.customer.db;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class RolesConverter implements AttributeConverter<Roles, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Roles roles) {
+        return roles == null ? null : roles.value();
+    }
+
+    @Override
+    public Roles convertToEntityAttribute(String value) {
+        return value == null ? null : Roles.of(value);
+    }
+}
@@ -11,7 +11,8 @@ public record CustomerDTO(
         Gender gender,
         Integer age,
         List<String> roles,
-        String username) {
+        String username,
+        Long version) {
 
 }
 
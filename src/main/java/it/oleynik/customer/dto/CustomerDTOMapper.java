@@ -1,7 +1,7 @@
 package it.oleynik.customer.dto;
 
 import it.oleynik.customer.db.Customer;
-import org.springframework.security.core.GrantedAuthority;
+import it.oleynik.customer.db.CustomerCredentials;
 import org.springframework.stereotype.Component;
 
 import java.util.function.Function;
@@ -17,9 +17,22 @@ public class CustomerDTOMapper implements Function<Customer, CustomerDTO> {
                 customer.getEmail(),
                 customer.getGender(),
                 customer.getAge(),
-                customer.getAuthorities()
-                        .stream().map(GrantedAuthority::getAuthority).toList(),
-                customer.getUsername()
+                customer.getRoles().names(),
+                customer.getUsername(),
+                customer.getVersion()
+        );
+    }
+
+    public CustomerDTO apply(CustomerCredentials credentials) {
+        return new CustomerDTO(
+                credentials.id(),
+                credentials.name(),
+                credentials.email(),
+                credentials.gender(),
+                credentials.age(),
+                credentials.roles().names(),
+                credentials.getUsername(),
+                credentials.version()
         );
     }
 }
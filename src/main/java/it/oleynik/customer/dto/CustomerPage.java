@@ -0,0 +1,9 @@
+package it.oleynik.customer.dto;
+
+import java.util.List;
+
+public record CustomerPage(
+        List<CustomerDTO> customers,
+        Integer nextCursor) {
+
+}
@@ -0,0 +1,15 @@
+package it.oleynik.customer.dto;
+
+import it.oleynik.customer.Gender;
+
+public record CustomerSearchRequest(
+        String name,
+        String email,
+        Integer minAge,
+        Integer maxAge,
+        Gender gender,
+        String sort,
+        Integer limit,
+        Integer offset
+) {
+}
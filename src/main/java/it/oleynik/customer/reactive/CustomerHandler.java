@@ -0,0 +1,129 @@
+package it.oleynik.customer.reactive;
+
+import it.oleynik.customer.auth.AuthenticationRequest;
+import it.oleynik.customer.auth.AuthenticationResponse;
+import it.oleynik.customer.auth.RefreshTokenRequest;
+import it.oleynik.customer.auth.RefreshTokenResponse;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.dto.CustomerDTO;
+import it.oleynik.customer.dto.CustomerDTOMapper;
+import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import it.oleynik.customer.dto.CustomerUpdateRequest;
+import it.oleynik.jwt.RefreshTokenService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerHandler {
+
+    private final ReactiveCustomerService customerService;
+    private final ReactiveAuthenticationManager authenticationManager;
+    private final RefreshTokenService refreshTokenService;
+    private final CustomerDTOMapper customerDTOMapper;
+
+    public CustomerHandler(ReactiveCustomerService customerService,
+                           ReactiveAuthenticationManager authenticationManager,
+                           RefreshTokenService refreshTokenService,
+                           CustomerDTOMapper customerDTOMapper) {
+        this.customerService = customerService;
+        this.authenticationManager = authenticationManager;
+        this.refreshTokenService = refreshTokenService;
+        this.customerDTOMapper = customerDTOMapper;
+    }
+
+    // the encoder writes each element as the database emits it, so demand flows back to the driver
+    public Mono<ServerResponse> getCustomers(ServerRequest request) {
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(customerService.getAllCustomers(), CustomerDTO.class);
+    }
+
+    public Mono<ServerResponse> getCustomersPage(ServerRequest request) {
+        Integer after = request.queryParam("after").map(Integer::valueOf).orElse(null);
+        Integer limit = request.queryParam("limit").map(Integer::valueOf).orElse(null);
+
+        return customerService.getCustomersPage(after, limit)
+                .flatMap(page -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+                    if (page.nextCursor() != null) {
+                        String next = request.uriBuilder()
+                                .replaceQueryParam("after", page.nextCursor())
+                                .build()
+                                .toString();
+                        response.header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next));
+                    }
+                    return response.bodyValue(page.customers());
+                });
+    }
+
+    public Mono<ServerResponse> getCustomer(ServerRequest request) {
+        return customerService.getCustomer(id(request))
+                .flatMap(customer -> ServerResponse.ok().bodyValue(customer));
+    }
+
+    public Mono<ServerResponse> registerCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerRegistrationRequest.class)
+                .flatMap(customerService::addCustomer)
+                .map(this::authenticationResponse)
+                .flatMap(response -> ServerResponse.ok().bodyValue(response));
+    }
+
+    public Mono<ServerResponse> deleteCustomer(ServerRequest request) {
+        return customerService.deleteCustomerById(id(request))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> updateCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerUpdateRequest.class)
+                .flatMap(update -> customerService.updateCustomer(update, id(request)))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> login(ServerRequest request) {
+        return request.bodyToMono(AuthenticationRequest.class)
+                .flatMap(login -> authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(login.username(), login.password())))
+                .onErrorMap(AuthenticationException.class,
+                        e -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage(), e))
+                .map(authentication -> (Customer) authentication.getPrincipal())
+                .map(this::authenticationResponse)
+                .flatMap(response -> ServerResponse.ok().bodyValue(response));
+    }
+
+    // rotation writes the deny-list row over jdbc, so it runs off the event loop
+    public Mono<ServerResponse> refresh(ServerRequest request) {
+        return request.bodyToMono(RefreshTokenRequest.class)
+                .publishOn(Schedulers.boundedElastic())
+                .map(refresh -> refreshTokenService.refresh(refresh.refreshToken()))
+                .onErrorMap(AuthenticationException.class,
+                        e -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, e.getMessage(), e))
+                .map(tokens -> new RefreshTokenResponse(tokens.accessToken(), tokens.refreshToken()))
+                .flatMap(response -> ServerResponse.ok().bodyValue(response));
+    }
+
+    // registration and login answer alike, so a new customer starts with a refresh token too
+    private AuthenticationResponse authenticationResponse(Customer customer) {
+        RefreshTokenService.TokenPair tokens = refreshTokenService.issue(customer.getUsername());
+        return new AuthenticationResponse(tokens.accessToken(), customerDTOMapper.apply(customer), tokens.refreshToken());
+    }
+
+    private static Integer id(ServerRequest request) {
+        return Integer.valueOf(request.pathVariable("id"));
+    }
+}
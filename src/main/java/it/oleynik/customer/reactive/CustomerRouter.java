@@ -0,0 +1,30 @@
+package it.oleynik.customer.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerRouter {
+
+    @Bean
+    RouterFunction<ServerResponse> customerRoutes(CustomerHandler handler) {
+        return RouterFunctions.route()
+                .path("/api/v1", builder -> builder
+                        .GET("/customers", RequestPredicates.queryParam("after", value -> true)
+                                .or(RequestPredicates.queryParam("limit", value -> true)), handler::getCustomersPage)
+                        .GET("/customers", handler::getCustomers)
+                        .GET("/customers/{id}", handler::getCustomer)
+                        .POST("/customers", handler::registerCustomer)
+                        .DELETE("/customers/{id}", handler::deleteCustomer)
+                        .PUT("/customers/{id}", handler::updateCustomer)
+                        .POST("/auth/login", handler::login)
+                        .POST("/auth/refresh", handler::refresh))
+                .build();
+    }
+}
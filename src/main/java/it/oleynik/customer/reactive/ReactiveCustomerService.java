@@ -0,0 +1,109 @@
+package it.oleynik.customer.reactive;
+
+import it.oleynik.customer.CustomerService;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.ReactiveCustomerDao;
+import it.oleynik.customer.dto.CustomerDTO;
+import it.oleynik.customer.dto.CustomerDTOMapper;
+import it.oleynik.customer.dto.CustomerPage;
+import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import it.oleynik.customer.dto.CustomerUpdateRequest;
+import it.oleynik.exception.DuplicatedResourceException;
+import it.oleynik.exception.PreconditionFailedException;
+import it.oleynik.exception.RequestValidationException;
+import it.oleynik.exception.ResourceNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+    private final PasswordEncoder passwordEncoder;
+    private final CustomerDTOMapper customerDTOMapper;
+
+    public ReactiveCustomerService(ReactiveCustomerDao customerDao,
+                                   PasswordEncoder passwordEncoder,
+                                   CustomerDTOMapper customerDTOMapper) {
+        this.customerDao = customerDao;
+        this.passwordEncoder = passwordEncoder;
+        this.customerDTOMapper = customerDTOMapper;
+    }
+
+    public Flux<CustomerDTO> getAllCustomers() {
+        return customerDao.selectAllCustomers().map(customerDTOMapper);
+    }
+
+    public Mono<CustomerPage> getCustomersPage(Integer afterId, Integer limit) {
+        int pageSize = limit == null ? CustomerService.DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > CustomerService.MAX_PAGE_SIZE) {
+            return Mono.error(new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE)));
+        }
+
+        return customerDao.selectCustomersPage(afterId, pageSize)
+                .map(customerDTOMapper)
+                .collectList()
+                .map(customers -> new CustomerPage(
+                        customers,
+                        customers.size() == pageSize ? customers.get(customers.size() - 1).id() : null));
+    }
+
+    public Mono<CustomerDTO> getCustomer(Integer id) {
+        return customerDao.selectCustomerById(id)
+                .map(customerDTOMapper)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    public Mono<Customer> addCustomer(CustomerRegistrationRequest request) {
+        return customerDao.existsCustomerWithEmail(request.email())
+                .flatMap(taken -> taken
+                        ? Mono.<String>error(new DuplicatedResourceException("email already taken"))
+                        : encode(request.password()))
+                .map(password -> new Customer(
+                        request.name(),
+                        request.email(),
+                        request.age(),
+                        request.gender(),
+                        password
+                ))
+                .flatMap(customer -> customerDao.insertCustomer(customer)
+                        .onErrorMap(DuplicateKeyException.class,
+                                e -> new DuplicatedResourceException("email already taken")));
+    }
+
+    public Mono<Void> deleteCustomerById(Integer id) {
+        return customerDao.deleteCustomerById(id)
+                .flatMap(deleted -> deleted == 0 ? Mono.<Void>error(notFound(id)) : Mono.<Void>empty());
+    }
+
+    public Mono<Void> updateCustomer(CustomerUpdateRequest request, Integer id) {
+        CustomerUpdate update = new CustomerUpdate(request.name(), request.email(), request.age(), request.gender());
+
+        return customerDao.updateCustomer(id, update)
+                .onErrorMap(DuplicateKeyException.class, e -> new DuplicatedResourceException("email already taken"))
+                .flatMap(result -> switch (result.status()) {
+                    case NOT_FOUND -> Mono.<Void>error(notFound(id));
+                    case UNCHANGED -> Mono.<Void>error(new RequestValidationException("no data changes needed"));
+                    case UPDATED -> Mono.<Void>empty();
+                    case VERSION_MISMATCH -> Mono.<Void>error(new PreconditionFailedException("customer was modified"));
+                });
+    }
+
+    // hashing blocks on the bounded hashing pool, keep it off the event loop
+    private Mono<String> encode(String password) {
+        return Mono.fromCallable(() -> passwordEncoder.encode(password))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static ResourceNotFoundException notFound(Integer id) {
+        return new ResourceNotFoundException("customer with id [%s] not found".formatted(id));
+    }
+}
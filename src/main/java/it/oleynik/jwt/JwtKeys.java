@@ -0,0 +1,161 @@
+package it.oleynik.jwt;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.core.io.Resource;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public final class JwtKeys {
+
+    public static final Set<String> SUPPORTED_ALGORITHMS = Set.of("RS256", "ES256", "HS256");
+
+    private JwtKeys() {
+    }
+
+    public static JWK signingKey(JwtProperties properties) {
+        return load(properties.keyId(), properties.algorithm(),
+                properties.privateKey(), properties.publicKey(), properties.secret());
+    }
+
+    public static JWKSet verificationKeys(JWK signingKey, List<JwtProperties.VerificationKey> previousKeys) {
+        List<JWK> keys = new ArrayList<>();
+        keys.add(verificationKey(signingKey));
+        for (JwtProperties.VerificationKey previous : previousKeys) {
+            keys.add(verificationKey(load(previous.keyId(), previous.algorithm(),
+                    null, previous.publicKey(), previous.secret())));
+        }
+        return new JWKSet(keys);
+    }
+
+    public static JwtEncoder encoder(JWK signingKey) {
+        return new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(signingKey)));
+    }
+
+    public static JwtDecoder decoder(JWKSet verificationKeys) {
+        Set<JWSAlgorithm> algorithms = verificationKeys.getKeys().stream()
+                .map(key -> JWSAlgorithm.parse(key.getAlgorithm().getName()))
+                .collect(Collectors.toSet());
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms, new ImmutableJWKSet<>(verificationKeys)));
+        // claims are validated by NimbusJwtDecoder's OAuth2TokenValidator
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        return new NimbusJwtDecoder(processor);
+    }
+
+    public static JwsHeader header(JWK signingKey) {
+        String name = signingKey.getAlgorithm().getName();
+        JwsAlgorithm algorithm = name.startsWith("HS") ? MacAlgorithm.from(name) : SignatureAlgorithm.from(name);
+        return JwsHeader.with(algorithm).keyId(signingKey.getKeyID()).build();
+    }
+
+    private static JWK verificationKey(JWK key) {
+        // a symmetric key has no public half, verification needs the secret itself
+        return key instanceof OctetSequenceKey ? key : key.toPublicJWK();
+    }
+
+    private static JWK load(String keyId, String algorithm, Resource privateKey, Resource publicKey, String secret) {
+        if (algorithm == null || !SUPPORTED_ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException(
+                    "unsupported jwt algorithm %s, expected one of %s".formatted(algorithm, SUPPORTED_ALGORITHMS));
+        }
+
+        return switch (algorithm) {
+            case "RS256" -> {
+                RSAKey.Builder builder = new RSAKey.Builder((RSAPublicKey) publicKey(required(publicKey, keyId), "RSA"));
+                if (privateKey != null) {
+                    builder.privateKey((RSAPrivateKey) privateKey(privateKey, "RSA"));
+                }
+                yield builder.keyID(keyId).keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.RS256).build();
+            }
+            case "ES256" -> {
+                ECKey.Builder builder = new ECKey.Builder(Curve.P_256, (ECPublicKey) publicKey(required(publicKey, keyId), "EC"));
+                if (privateKey != null) {
+                    builder.privateKey((ECPrivateKey) privateKey(privateKey, "EC"));
+                }
+                yield builder.keyID(keyId).keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.ES256).build();
+            }
+            default -> {
+                if (secret == null) {
+                    throw new IllegalArgumentException("jwt key %s requires a secret".formatted(keyId));
+                }
+                byte[] bytes = Base64.getDecoder().decode(secret);
+                if (bytes.length < 32) {
+                    throw new IllegalArgumentException("jwt key %s secret must be at least 256 bits".formatted(keyId));
+                }
+                yield new OctetSequenceKey.Builder(bytes)
+                        .keyID(keyId).keyUse(KeyUse.SIGNATURE).algorithm(JWSAlgorithm.HS256).build();
+            }
+        };
+    }
+
+    private static Resource required(Resource resource, String keyId) {
+        if (resource == null) {
+            throw new IllegalArgumentException("jwt key %s requires a public key".formatted(keyId));
+        }
+        return resource;
+    }
+
+    private static PublicKey publicKey(Resource resource, String type) {
+        try {
+            return KeyFactory.getInstance(type).generatePublic(new X509EncodedKeySpec(pem(resource)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("invalid %s public key %s".formatted(type, resource), e);
+        }
+    }
+
+    private static PrivateKey privateKey(Resource resource, String type) {
+        try {
+            return KeyFactory.getInstance(type).generatePrivate(new PKCS8EncodedKeySpec(pem(resource)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("invalid %s private key %s".formatted(type, resource), e);
+        }
+    }
+
+    private static byte[] pem(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            String pem = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+            return Base64.getMimeDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", ""));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package it.oleynik.jwt;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "jwt")
+public record JwtProperties(
+        @DefaultValue("RS256") String algorithm,
+        @DefaultValue("default") String keyId,
+        Resource privateKey,
+        Resource publicKey,
+        String secret,
+        @DefaultValue List<VerificationKey> previousKeys
+) {
+
+    public record VerificationKey(
+            String keyId,
+            String algorithm,
+            Resource publicKey,
+            String secret
+    ) {
+    }
+}
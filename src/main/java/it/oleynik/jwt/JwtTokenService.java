@@ -1,49 +1,100 @@
 package it.oleynik.jwt;
 
 import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.jwt.JwsHeader;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.stereotype.Component;
 
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtTokenService {
 
+    public static final String TOKEN_TYPE_CLAIM = "token_type";
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+
     private final JwtEncoder jwtEncoder;
+    private final JwsHeader jwsHeader;
+    private final Duration accessTokenTtl;
+    private final Duration refreshTokenTtl;
+    private final Timer accessTokenTimer;
+    private final Timer refreshTokenTimer;
+
+    public JwtTokenService(JwtEncoder jwtEncoder, JwsHeader jwsHeader) {
+        this(jwtEncoder, jwsHeader, Metrics.globalRegistry, Duration.ofMinutes(15), Duration.ofDays(7));
+    }
 
     @Autowired
-    public JwtTokenService(JwtEncoder jwtEncoder) {
+    public JwtTokenService(JwtEncoder jwtEncoder,
+                           JwsHeader jwsHeader,
+                           MeterRegistry meterRegistry,
+                           @Value("${jwt.access-token-ttl:15m}") Duration accessTokenTtl,
+                           @Value("${jwt.refresh-token-ttl:7d}") Duration refreshTokenTtl) {
         this.jwtEncoder = jwtEncoder;
+        this.jwsHeader = jwsHeader;
+        this.accessTokenTtl = accessTokenTtl;
+        this.refreshTokenTtl = refreshTokenTtl;
+        this.accessTokenTimer = encodeTimer("access", meterRegistry);
+        this.refreshTokenTimer = encodeTimer("refresh", meterRegistry);
+    }
+
+    private static Timer encodeTimer(String type, MeterRegistry meterRegistry) {
+        return Timer.builder("jwt.encode")
+                .description("Token signing time")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public String generateAccessToken(UserDetails usrDetails) {
-        Instant now = Instant.now();
-        JwtClaimsSet claims = JwtClaimsSet.builder()
-                .issuer("self")
-                .issuedAt(now)
-                .expiresAt(now.plus(8, ChronoUnit.HOURS))
-                .subject(usrDetails.getUsername())
-                .build();
+        return generateAccessToken(usrDetails.getUsername());
+    }
 
-        return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    public String generateAccessToken(String subject) {
+        return encode(claims(subject, ACCESS_TOKEN, accessTokenTtl), accessTokenTimer);
     }
 
     public String generateRefreshToken(UserDetails usrDetails) {
-        Instant now = Instant.now();
+        return generateRefreshToken(usrDetails.getUsername());
+    }
 
-        JwtClaimsSet claims = JwtClaimsSet.builder()
+    public String generateRefreshToken(String subject) {
+        return encode(claims(subject, REFRESH_TOKEN, refreshTokenTtl), refreshTokenTimer);
+    }
+
+    // every token gets an id so it can be revoked before it expires
+    private static JwtClaimsSet claims(String subject, String type, Duration ttl) {
+        Instant now = Instant.now();
+        return JwtClaimsSet.builder()
+                .id(UUID.randomUUID().toString())
                 .issuer("self")
                 .issuedAt(now)
-                .expiresAt(now.plus(10, ChronoUnit.MINUTES))
-                .subject(usrDetails.getUsername())
+                .expiresAt(now.plus(ttl))
+                .subject(subject)
+                .claim(TOKEN_TYPE_CLAIM, type)
                 .build();
-        return this.jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    }
+
+    private String encode(JwtClaimsSet claims, Timer timer) {
+        long start = System.nanoTime();
+        try {
+            return jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, claims)).getTokenValue();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     public String parseToken(String token) {
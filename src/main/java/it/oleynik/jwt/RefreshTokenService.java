@@ -0,0 +1,83 @@
+package it.oleynik.jwt;
+
+import it.oleynik.customer.db.CustomerDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Issues access and refresh token pairs and rotates them: a refresh token is revoked the moment
+ * it's exchanged, so each one works once and a replayed one is refused. A refresh token of a
+ * customer that has since been deleted is refused too.
+ */
+@Component
+public class RefreshTokenService {
+
+    private final JwtTokenService jwtTokenService;
+    private final CachingJwtDecoder jwtDecoder;
+    private final TokenRevocationStore revocationStore;
+    private final CustomerDao customerDao;
+
+    @Autowired
+    public RefreshTokenService(JwtTokenService jwtTokenService,
+                               CachingJwtDecoder jwtDecoder,
+                               TokenRevocationStore revocationStore,
+                               CustomerDao customerDao) {
+        this.jwtTokenService = jwtTokenService;
+        this.jwtDecoder = jwtDecoder;
+        this.revocationStore = revocationStore;
+        this.customerDao = customerDao;
+    }
+
+    public TokenPair issue(String subject) {
+        return new TokenPair(
+                jwtTokenService.generateAccessToken(subject),
+                jwtTokenService.generateRefreshToken(subject));
+    }
+
+    public TokenPair refresh(String refreshToken) {
+        Jwt jwt = decodeRefreshToken(refreshToken);
+        if (!revocationStore.revoke(jwt.getId(), jwt.getExpiresAt())) {
+            throw new BadCredentialsException("refresh token already used");
+        }
+        if (!customerDao.existsCustomerWithEmail(jwt.getSubject())) {
+            throw new BadCredentialsException("customer no longer exists");
+        }
+        return issue(jwt.getSubject());
+    }
+
+    public void revoke(Jwt accessToken, String refreshToken) {
+        if (accessToken.getId() != null) {
+            revocationStore.revoke(accessToken.getId(), accessToken.getExpiresAt());
+        }
+        if (refreshToken != null) {
+            Jwt jwt = decodeRefreshToken(refreshToken);
+            if (!jwt.getSubject().equals(accessToken.getSubject())) {
+                throw new BadCredentialsException("refresh token belongs to another customer");
+            }
+            revocationStore.revoke(jwt.getId(), jwt.getExpiresAt());
+        }
+    }
+
+    private Jwt decodeRefreshToken(String refreshToken) {
+        Jwt jwt;
+        try {
+            jwt = jwtDecoder.decode(refreshToken);
+        } catch (JwtException e) {
+            throw new BadCredentialsException("invalid refresh token", e);
+        }
+        if (!JwtTokenService.REFRESH_TOKEN.equals(jwt.getClaimAsString(JwtTokenService.TOKEN_TYPE_CLAIM))
+                || jwt.getId() == null) {
+            throw new BadCredentialsException("invalid refresh token");
+        }
+        if (revocationStore.isRevoked(jwt.getId())) {
+            throw new BadCredentialsException("refresh token already used");
+        }
+        return jwt;
+    }
+
+    public record TokenPair(String accessToken, String refreshToken) {
+    }
+}
@@ -0,0 +1,33 @@
+package it.oleynik.jwt;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+/**
+ * Bearer token decoder for the resource server. Runs after the verified-token cache on every
+ * request, turning away refresh tokens and tokens on the deny-list without a query.
+ */
+public class RevocationCheckingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final TokenRevocationStore revocationStore;
+
+    public RevocationCheckingJwtDecoder(JwtDecoder delegate, TokenRevocationStore revocationStore) {
+        this.delegate = delegate;
+        this.revocationStore = revocationStore;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt jwt = delegate.decode(token);
+        if (JwtTokenService.REFRESH_TOKEN.equals(jwt.getClaimAsString(JwtTokenService.TOKEN_TYPE_CLAIM))) {
+            throw new BadJwtException("refresh token can't be used as a bearer token");
+        }
+        if (jwt.getId() != null && revocationStore.isRevoked(jwt.getId())) {
+            throw new BadJwtException("token has been revoked");
+        }
+        return jwt;
+    }
+}
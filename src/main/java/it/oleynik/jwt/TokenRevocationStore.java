@@ -0,0 +1,107 @@
+package it.oleynik.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Deny-list of revoked token ids. Bearer tokens are checked against memory only, an entry lives
+ * until the token it revokes expires and is never evicted before that. With persistence on, every
+ * revocation is also written to {@code revoked_token} and the live rows are reloaded at startup;
+ * the insert decides which caller revoked an id first, so a refresh token is single use across
+ * instances too.
+ */
+@Component
+public class TokenRevocationStore implements MeterBinder {
+
+    private final Cache<String, Instant> revoked;
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+
+    @Autowired
+    public TokenRevocationStore(ObjectProvider<JdbcTemplate> jdbcTemplate,
+                                @Value("${jwt.revocation.persistent:true}") boolean persistent) {
+        this(persistent ? jdbcTemplate.getObject() : null, Clock.systemUTC());
+    }
+
+    public TokenRevocationStore(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.revoked = Caffeine.newBuilder()
+                .expireAfter(new UntilTokenExpires())
+                .build();
+        if (jdbcTemplate != null) {
+            load();
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        return revoked.getIfPresent(jti) != null;
+    }
+
+    // true only for the call that revoked the id
+    public boolean revoke(String jti, Instant expiresAt) {
+        if (jdbcTemplate == null) {
+            return revoked.asMap().putIfAbsent(jti, expiresAt) == null;
+        }
+
+        int inserted = jdbcTemplate.update("""
+                INSERT INTO revoked_token(jti, expires_at)
+                VALUES (?, ?)
+                ON CONFLICT (jti) DO NOTHING
+                """, jti, Timestamp.from(expiresAt));
+        revoked.put(jti, expiresAt);
+        return inserted == 1;
+    }
+
+    public long size() {
+        return revoked.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revoked", revoked, Cache::estimatedSize)
+                .description("Revoked tokens that haven't expired yet")
+                .register(registry);
+    }
+
+    private void load() {
+        Timestamp now = Timestamp.from(clock.instant());
+        jdbcTemplate.update("DELETE FROM revoked_token WHERE expires_at <= ?", now);
+        jdbcTemplate.query("SELECT jti, expires_at FROM revoked_token WHERE expires_at > ?",
+                (RowCallbackHandler) rs -> revoked.put(rs.getString("jti"), rs.getTimestamp("expires_at").toInstant()),
+                now);
+    }
+
+    private class UntilTokenExpires implements Expiry<String, Instant> {
+
+        @Override
+        public long expireAfterCreate(String jti, Instant expiresAt, long currentTime) {
+            return Math.max(0, Duration.between(clock.instant(), expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String jti, Instant expiresAt, long currentTime, long currentDuration) {
+            return expireAfterCreate(jti, expiresAt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String jti, Instant expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package it.oleynik.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.oleynik.exception.TooManyRequestsException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Throttles {@code POST /api/v1/auth/login} per client address and per username before Spring
+ * Security runs, so a refused attempt costs neither a customer lookup nor a password hash.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "security.login.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    static final String LOGIN_PATH = "/api/v1/auth/login";
+    // a login body is two short strings, anything larger isn't worth buffering
+    static final int MAX_BODY_SIZE = 4096;
+
+    private final RateLimiter addressLimiter;
+    private final RateLimiter usernameLimiter;
+    private final ObjectMapper objectMapper;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final Counter addressRejections;
+    private final Counter usernameRejections;
+
+    @Autowired
+    public LoginRateLimitFilter(@Value("${security.login.rate-limit.address.capacity:20}") int addressCapacity,
+                                @Value("${security.login.rate-limit.address.period:1m}") Duration addressPeriod,
+                                @Value("${security.login.rate-limit.username.capacity:5}") int usernameCapacity,
+                                @Value("${security.login.rate-limit.username.period:1m}") Duration usernamePeriod,
+                                @Value("${security.login.rate-limit.maximum-keys:100000}") long maximumKeys,
+                                ObjectMapper objectMapper,
+                                @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+                                MeterRegistry meterRegistry) {
+        this(new RateLimiter(addressCapacity, addressPeriod, maximumKeys),
+                new RateLimiter(usernameCapacity, usernamePeriod, maximumKeys),
+                objectMapper, handlerExceptionResolver, meterRegistry);
+    }
+
+    public LoginRateLimitFilter(RateLimiter addressLimiter,
+                                RateLimiter usernameLimiter,
+                                ObjectMapper objectMapper,
+                                HandlerExceptionResolver handlerExceptionResolver,
+                                MeterRegistry meterRegistry) {
+        this.addressLimiter = addressLimiter;
+        this.usernameLimiter = usernameLimiter;
+        this.objectMapper = objectMapper;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.addressRejections = rejections(meterRegistry, "address");
+        this.usernameRejections = rejections(meterRegistry, "username");
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String limit) {
+        return Counter.builder("security.login.rate-limited")
+                .description("Login attempts refused before authentication")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !(request.getContextPath() + LOGIN_PATH).equals(request.getRequestURI());
+    }
+
+    // the address is the peer unless server.forward-headers-strategy lets a trusted proxy set it
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Duration wait = addressLimiter.tryAcquire(request.getRemoteAddr());
+        if (!wait.isZero()) {
+            addressRejections.increment();
+            reject(request, response, wait);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_SIZE + 1);
+        if (body.length > MAX_BODY_SIZE) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            return;
+        }
+
+        String username = username(body);
+        if (username != null) {
+            wait = usernameLimiter.tryAcquire(username);
+            if (!wait.isZero()) {
+                usernameRejections.increment();
+                reject(request, response, wait);
+                return;
+            }
+        }
+
+        filterChain.doFilter(new BufferedBodyRequest(request, body), response);
+    }
+
+    // a body that doesn't parse has no username to limit, the controller answers it with 400
+    private String username(byte[] body) {
+        try {
+            JsonNode username = objectMapper.readTree(body).path("username");
+            return username.isTextual() ? username.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, Duration wait) {
+        handlerExceptionResolver.resolveException(request, response, null,
+                new TooManyRequestsException("too many login attempts", wait));
+    }
+
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // the whole body is already in memory, so it is available and fully read at once
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            return new BufferedReader(new InputStreamReader(getInputStream(), getCharacterEncoding() == null
+                    ? "UTF-8"
+                    : getCharacterEncoding()));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
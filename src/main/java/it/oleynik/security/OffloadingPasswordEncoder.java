@@ -0,0 +1,160 @@
+package it.oleynik.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.oleynik.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs hashing on a bounded pool so a login or registration storm queues at most
+ * {@code queueCapacity} hashes and is answered with 503 beyond that, instead of
+ * every servlet thread burning CPU on BCrypt at once.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    // one per running or queued hash, released only when the hash finishes or is skipped unstarted
+    private final Semaphore permits;
+    private final int capacity;
+    private final Duration timeout;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate,
+                                     int threads,
+                                     int queueCapacity,
+                                     Duration timeout,
+                                     MeterRegistry meterRegistry) {
+        this(delegate, new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy()), timeout, meterRegistry);
+    }
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate,
+                                     ThreadPoolExecutor executor,
+                                     Duration timeout,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.capacity = executor.getMaximumPoolSize() + executor.getQueue().remainingCapacity();
+        this.permits = new Semaphore(capacity);
+        this.timeout = timeout;
+        this.encodeTimer = hashTimer("encode", meterRegistry);
+        this.matchesTimer = hashTimer("matches", meterRegistry);
+        this.rejected = Counter.builder("password.hash.rejected")
+                .description("Hashes refused because the hashing pool was saturated or timed out")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.queue", executor, pool -> pool.getQueue().size())
+                .description("Hashes waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hashes currently running")
+                .register(meterRegistry);
+        Gauge.builder("password.hash.in-flight", this, OffloadingPasswordEncoder::inFlight)
+                .description("Hashes holding capacity, including ones whose caller already gave up")
+                .register(meterRegistry);
+    }
+
+    private static Timer hashTimer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("password.hash")
+                .description("Time spent hashing on the hashing pool, excluding queueing")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return call(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return call(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    public int inFlight() {
+        return capacity - permits.availablePermits();
+    }
+
+    // BCrypt ignores interrupts, so a timed out hash isn't cancelled: it keeps its permit until the
+    // worker is really free again, and one that hasn't started yet is skipped when its turn comes
+    private <T> T call(Callable<T> task) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new ServiceUnavailableException("password hashing capacity exceeded, retry later");
+        }
+
+        AtomicBoolean abandoned = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return abandoned.get() ? null : task.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            rejected.increment();
+            throw new ServiceUnavailableException("password hashing capacity exceeded, retry later", e);
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandoned.set(true);
+            rejected.increment();
+            throw new ServiceUnavailableException("password hashing timed out, retry later", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned.set(true);
+            throw new IllegalStateException("password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
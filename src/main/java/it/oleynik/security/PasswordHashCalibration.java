@@ -0,0 +1,36 @@
+package it.oleynik.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+public final class PasswordHashCalibration {
+
+    static final int MIN_BCRYPT_STRENGTH = 4;
+    static final int MAX_BCRYPT_STRENGTH = 31;
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private PasswordHashCalibration() {
+    }
+
+    /**
+     * Returns the lowest BCrypt strength whose hash takes at least {@code target} on this machine.
+     * Every extra round doubles the cost, so the search stops after roughly twice the target time.
+     */
+    public static int bcryptStrength(Duration target) {
+        new BCryptPasswordEncoder(MIN_BCRYPT_STRENGTH).encode(SAMPLE_PASSWORD);
+
+        int strength = MIN_BCRYPT_STRENGTH;
+        while (strength < MAX_BCRYPT_STRENGTH && hashTime(strength).compareTo(target) < 0) {
+            strength++;
+        }
+        return strength;
+    }
+
+    private static Duration hashTime(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode(SAMPLE_PASSWORD);
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+}
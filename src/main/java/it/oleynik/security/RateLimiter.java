@@ -0,0 +1,65 @@
+package it.oleynik.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per key, kept as the generic cell rate algorithm: the whole bucket is one
+ * theoretical arrival time updated with a CAS, so no locks and no refill thread. A key idle for a
+ * full period has a full bucket again, so expiring it after that loses nothing; the size bound
+ * only matters under a flood of distinct keys.
+ */
+public class RateLimiter {
+
+    private final Cache<String, AtomicLong> arrivals;
+    private final long interval;
+    private final long tolerance;
+    private final Ticker ticker;
+
+    public RateLimiter(int capacity, Duration period, long maximumKeys) {
+        this(capacity, period, maximumKeys, Ticker.systemTicker());
+    }
+
+    public RateLimiter(int capacity, Duration period, long maximumKeys, Ticker ticker) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.interval = period.toNanos() / capacity;
+        this.tolerance = interval * (capacity - 1);
+        this.ticker = ticker;
+        this.arrivals = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(period)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Takes a token for the key.
+     *
+     * @return zero when the request may go ahead, otherwise how long until a token is available
+     */
+    public Duration tryAcquire(String key) {
+        long now = ticker.read();
+        AtomicLong arrival = arrivals.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = arrival.get();
+            long start = current - now > 0 ? current : now;
+            long wait = start - now - tolerance;
+            if (wait > 0) {
+                return Duration.ofNanos(wait);
+            }
+            if (arrival.compareAndSet(current, start + interval)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    public long size() {
+        return arrivals.estimatedSize();
+    }
+}
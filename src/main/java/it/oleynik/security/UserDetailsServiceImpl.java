@@ -2,25 +2,31 @@ package it.oleynik.security;
 
 import it.oleynik.customer.db.CustomerDao;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final CustomerDao customerDao;
 
     @Autowired
-    public UserDetailsServiceImpl(@Qualifier("jpa") CustomerDao customerDao) {
+    public UserDetailsServiceImpl(CustomerDao customerDao) {
         this.customerDao = customerDao;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) {
-        return customerDao.selectUserByEmail(email)
+        return customerDao.selectCredentialsByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("can't find user with email %s".formatted(email)));
     }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        customerDao.updateCustomerPassword(user.getUsername(), newPassword);
+        return loadUserByUsername(user.getUsername());
+    }
 }
@@ -0,0 +1,2 @@
+ALTER TABLE customer
+    ADD COLUMN roles TEXT NOT NULL DEFAULT 'ROLE_USER';
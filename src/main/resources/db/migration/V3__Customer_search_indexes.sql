@@ -0,0 +1,9 @@
+-- prefix search on name: LIKE 'abc%' can only use a btree under a non-C collation with text_pattern_ops
+CREATE INDEX customer_name_pattern_idx ON customer (name text_pattern_ops);
+
+CREATE INDEX customer_email_lower_idx ON customer (lower(email));
+
+CREATE INDEX customer_age_idx ON customer (age);
+
+-- gender alone is too coarse to be worth an index, leading it with age range lookups is
+CREATE INDEX customer_gender_age_idx ON customer (gender, age);
@@ -0,0 +1,8 @@
+-- deny-list of token ids, only read at startup, rows past expires_at are dropped then
+CREATE TABLE revoked_token
+(
+    jti        TEXT PRIMARY KEY,
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX revoked_token_expires_at_idx ON revoked_token (expires_at);
@@ -5,6 +5,8 @@ import com.github.javafaker.Name;
 import it.oleynik.customer.Gender;
 import it.oleynik.customer.auth.AuthenticationRequest;
 import it.oleynik.customer.auth.AuthenticationResponse;
+import it.oleynik.customer.auth.RefreshTokenRequest;
+import it.oleynik.customer.auth.RefreshTokenResponse;
 import it.oleynik.customer.dto.CustomerDTO;
 import it.oleynik.customer.dto.CustomerRegistrationRequest;
 import it.oleynik.jwt.JwtTokenService;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -34,6 +37,7 @@ public class AuthIntegrationTest {
 
 
     private static final Random RANDOM = new Random();
+    private static final Name FAKER_NAME = new Faker().name();
 
 
     @Test
@@ -92,4 +96,77 @@ public class AuthIntegrationTest {
         assertThat(customerDTO.gender()).isEqualTo(gender);
         assertThat(customerDTO.roles()).isEqualTo(List.of("ROLE_USER"));
     }
+
+    @Test
+    void shouldRotateRefreshToken() {
+        // Given
+        String email = FAKER_NAME.lastName().toLowerCase() + UUID.randomUUID() + "@mail.com";
+        CustomerRegistrationRequest registrationRequest =
+                new CustomerRegistrationRequest("Vova", email, 20, Gender.MALE, "password");
+        webTestClient.post()
+                .uri("/api/v1/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(registrationRequest), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        AuthenticationResponse login = webTestClient.post()
+                .uri("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new AuthenticationRequest(email, "password")), AuthenticationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(AuthenticationResponse.class)
+                .returnResult()
+                .getResponseBody();
+        RefreshTokenRequest refreshRequest = new RefreshTokenRequest(login.refreshToken());
+
+        // When
+        RefreshTokenResponse refreshed = webTestClient.post()
+                .uri("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(refreshRequest), RefreshTokenRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(RefreshTokenResponse.class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then
+        assertThat(tokenService.parseToken(refreshed.token())).isEqualTo(email);
+
+        webTestClient.post()
+                .uri("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(refreshRequest), RefreshTokenRequest.class)
+                .exchange()
+                .expectStatus()
+                .isUnauthorized();
+
+        webTestClient.get()
+                .uri("/api/v1/customers?limit=1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + login.refreshToken())
+                .exchange()
+                .expectStatus()
+                .isForbidden();
+
+        webTestClient.post()
+                .uri("/api/v1/auth/logout")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + refreshed.token())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new RefreshTokenRequest(refreshed.refreshToken())), RefreshTokenRequest.class)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient.get()
+                .uri("/api/v1/customers?limit=1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + refreshed.token())
+                .exchange()
+                .expectStatus()
+                .isForbidden();
+    }
 }
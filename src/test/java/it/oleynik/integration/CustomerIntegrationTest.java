@@ -3,6 +3,7 @@ package it.oleynik.integration;
 import com.github.javafaker.Faker;
 import com.github.javafaker.Name;
 import it.oleynik.customer.Gender;
+import it.oleynik.customer.auth.AuthenticationResponse;
 import it.oleynik.customer.dto.CustomerDTO;
 import it.oleynik.customer.dto.CustomerRegistrationRequest;
 import it.oleynik.customer.dto.CustomerUpdateRequest;
@@ -12,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
@@ -47,9 +49,10 @@ class CustomerIntegrationTest {
                 .exchange()
                 .expectStatus()
                 .isOk()
-                .expectBody(String.class)
+                .expectBody(AuthenticationResponse.class)
                 .returnResult()
-                .getResponseBody();
+                .getResponseBody()
+                .token();
 
         List<CustomerDTO> allCustomers = webTestClient.get()
                 .uri("/api/v1/customers")
@@ -66,7 +69,7 @@ class CustomerIntegrationTest {
         int id = allCustomers.stream().filter(customer -> customer.email().equals(email))
                 .map(CustomerDTO::id).findFirst().orElseThrow();
 
-        CustomerDTO expectedDTO = new CustomerDTO(id, name, email, gender, age, List.of("ROLE_USER"), email);
+        CustomerDTO expectedDTO = new CustomerDTO(id, name, email, gender, age, List.of("ROLE_USER"), email, 0L);
 
         Assertions.assertThat(allCustomers).contains(expectedDTO);
 
@@ -101,9 +104,10 @@ class CustomerIntegrationTest {
                 .exchange()
                 .expectStatus()
                 .isOk()
-                .expectBody(String.class)
+                .expectBody(AuthenticationResponse.class)
                 .returnResult()
-                .getResponseBody();
+                .getResponseBody()
+                .token();
 
         List<CustomerDTO> allCustomers = webTestClient.get()
                 .uri("/api/v1/customers")
@@ -158,9 +162,10 @@ class CustomerIntegrationTest {
                 .exchange()
                 .expectStatus()
                 .isOk()
-                .expectBody(String.class)
+                .expectBody(AuthenticationResponse.class)
                 .returnResult()
-                .getResponseBody();;
+                .getResponseBody()
+                .token();;
 
         List<CustomerDTO> allCustomers = webTestClient.get()
                 .uri("/api/v1/customers")
@@ -191,7 +196,7 @@ class CustomerIntegrationTest {
                 .expectStatus()
                 .isOk();
 
-        CustomerDTO expected = new CustomerDTO(id, newName, email, gender, age, List.of("ROLE_USER"), email);
+        CustomerDTO expected = new CustomerDTO(id, newName, email, gender, age, List.of("ROLE_USER"), email, 1L);
 
         // Then
         CustomerDTO actual = webTestClient.get()
@@ -208,4 +213,119 @@ class CustomerIntegrationTest {
 
         Assertions.assertThat(actual).isEqualTo(expected);
     }
+
+    @Test
+    void shouldAnswerConditionalRequests() {
+        // Given
+        Faker faker = new Faker();
+        String email = faker.name().lastName().toLowerCase() + UUID.randomUUID() + "@mail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Vova", email, 30, Gender.MALE, "password");
+
+        String token = webTestClient.post()
+                .uri("/api/v1/customers")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(AuthenticationResponse.class)
+                .returnResult()
+                .getResponseBody()
+                .token();
+
+        int id = webTestClient.get()
+                .uri("/api/v1/customers")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(CustomerDTO.class)
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .filter(customer -> customer.email().equals(email))
+                .map(CustomerDTO::id)
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        String eTag = webTestClient.get()
+                .uri("/api/v1/customers/{id}", id)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache, private")
+                .returnResult(CustomerDTO.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // Then
+        Assertions.assertThat(eTag).isEqualTo("\"0\"");
+
+        webTestClient.get()
+                .uri("/api/v1/customers/{id}", id)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        webTestClient.put()
+                .uri("/api/v1/customers/{id}", id)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("Borys", null, null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        webTestClient.delete()
+                .uri("/api/v1/customers/{id}", id)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void shouldNegotiateCborForCustomersPage() {
+        // Given
+        Faker faker = new Faker();
+        String email = faker.name().lastName().toLowerCase() + UUID.randomUUID() + "@mail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Vova", email, 30, Gender.MALE, "password");
+
+        String token = webTestClient.post()
+                .uri("/api/v1/customers")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(AuthenticationResponse.class)
+                .returnResult()
+                .getResponseBody()
+                .token();
+
+        // When
+        webTestClient.get()
+                .uri("/api/v1/customers?limit=10")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+
+        // Then
+                .expectStatus()
+                .isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR);
+    }
 }
@@ -3,27 +3,39 @@ package it.oleynik.integration;
 import it.oleynik.AbstractTestContainers;
 import it.oleynik.customer.Gender;
 import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerCredentials;
+import it.oleynik.customer.db.CustomerDTORowMapper;
 import it.oleynik.customer.db.CustomerJDBCDataAccessService;
 import it.oleynik.customer.db.CustomerRowMapper;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.CustomerUpdateResult;
+import it.oleynik.customer.db.Roles;
+import it.oleynik.customer.dto.CustomerDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJDBCDataAccessServiceIntegrationTest extends AbstractTestContainers {
 
     private CustomerJDBCDataAccessService underTest;
     private final CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+    private final CustomerDTORowMapper customerDTORowMapper = new CustomerDTORowMapper();
 
     @BeforeEach
     void setUp() {
         underTest = new CustomerJDBCDataAccessService(
                 getJdbcTemplate(),
-                customerRowMapper
+                customerRowMapper,
+                customerDTORowMapper
         );
     }
 
@@ -46,6 +58,89 @@ class CustomerJDBCDataAccessServiceIntegrationTest extends AbstractTestContainer
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void shouldReturnInsertedRow() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, 20, Gender.MALE, "password");
+
+        //When
+        Customer actual = underTest.insertCustomer(customer);
+
+        //Then
+        assertThat(actual.getId()).isNotNull();
+        assertThat(actual.getVersion()).isZero();
+        assertThat(underTest.selectUserByEmail(email)).contains(actual);
+    }
+
+    @Test
+    void shouldSelectCustomersPageAfterCursor() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20,
+                    Gender.MALE,
+                    "password"
+            ));
+        }
+        List<Customer> firstPage = underTest.selectCustomersPage(null, 2);
+        Integer cursor = firstPage.get(firstPage.size() - 1).getId();
+
+        //When
+        List<Customer> actual = underTest.selectCustomersPage(cursor, 2);
+
+        //Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(actual).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(cursor));
+        assertThat(actual).extracting(Customer::getId).isSorted();
+    }
+
+    @Test
+    void shouldStreamAllCustomers() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.FEMALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+
+        //When
+        List<Customer> actual = new ArrayList<>();
+        underTest.streamAllCustomers(actual::add);
+
+        //Then
+        assertThat(actual).hasSameSizeAs(underTest.selectAllCustomers())
+                .anySatisfy(c -> assertThat(c.getEmail()).isEqualTo(customer.getEmail()));
+    }
+
+    @Test
+    void shouldStreamAllCustomerDTOs() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.FEMALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+
+        //When
+        List<CustomerDTO> actual = new ArrayList<>();
+        underTest.streamAllCustomerDTOs(actual::add);
+
+        //Then
+        assertThat(actual).hasSameSizeAs(underTest.selectAllCustomers())
+                .anySatisfy(c -> assertThat(c.email()).isEqualTo(customer.getEmail()));
+        assertThat(actual).extracting(CustomerDTO::id).isSorted();
+    }
+
     @Test
     void shouldSelectCustomerById() {
         //Given
@@ -76,6 +171,66 @@ class CustomerJDBCDataAccessServiceIntegrationTest extends AbstractTestContainer
         );
     }
 
+    @Test
+    void shouldSelectCustomerDTOById() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20,
+                Gender.FEMALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+        Integer id = underTest.selectUserByEmail(email).map(Customer::getId).orElseThrow();
+
+        //When
+        Optional<CustomerDTO> actual = underTest.selectCustomerDTOById(id);
+
+        //Then
+        assertThat(actual).contains(new CustomerDTO(
+                id, customer.getName(), email, Gender.FEMALE, 20, List.of("ROLE_USER"), email, 0L));
+    }
+
+    @Test
+    void shouldSelectCustomerDTOsPage() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE, "password"));
+        Integer id = underTest.selectUserByEmail(email).map(Customer::getId).orElseThrow();
+
+        //When
+        List<CustomerDTO> actual = underTest.selectCustomerDTOsPage(id - 1, 1);
+
+        //Then
+        assertThat(actual).singleElement().satisfies(dto -> {
+            assertThat(dto.id()).isEqualTo(id);
+            assertThat(dto.email()).isEqualTo(email);
+        });
+    }
+
+    @Test
+    void shouldBumpVersionAndRejectStaleUpdate() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE, "password"));
+        Integer id = underTest.selectUserByEmail(email).map(Customer::getId).orElseThrow();
+
+        //When
+        CustomerUpdateResult updated = underTest.updateCustomer(id, new CustomerUpdate("Vova", null, null, null), 0L);
+        CustomerUpdateResult stale = underTest.updateCustomer(id, new CustomerUpdate("Borys", null, null, null), 0L);
+        CustomerUpdateResult unchanged = underTest.updateCustomer(id, new CustomerUpdate("Vova", null, null, null), 1L);
+
+        //Then
+        assertThat(updated.customer().getVersion()).isEqualTo(1);
+        assertThat(stale.status()).isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+        assertThat(unchanged.status()).isEqualTo(CustomerUpdateResult.Status.UNCHANGED);
+        assertThat(underTest.selectCustomerVersion(id)).contains(1L);
+        assertThat(underTest.deleteCustomerById(id, 0)).isZero();
+        assertThat(underTest.deleteCustomerById(id, 1)).isOne();
+    }
+
     @Test
     void shouldReturnEmptyWhenSelectCustomerById() {
         //Given
@@ -120,6 +275,88 @@ class CustomerJDBCDataAccessServiceIntegrationTest extends AbstractTestContainer
         assertThat(actual).isFalse();
     }
 
+    @Test
+    void shouldReturnTakenEmails() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+        String freeEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        //When
+        Set<String> actual = underTest.existsCustomersWithEmails(List.of(customer.getEmail(), freeEmail));
+
+        //Then
+        assertThat(actual).containsExactly(customer.getEmail());
+    }
+
+    @Test
+    void shouldInsertCustomersSkippingTakenEmails() {
+        //Given
+        Customer existing = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(existing);
+        Customer fresh = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                30,
+                Gender.FEMALE,
+                "password"
+        );
+        Customer conflicting = new Customer(
+                FAKER.name().fullName(),
+                existing.getEmail(),
+                40,
+                Gender.FEMALE,
+                "password"
+        );
+
+        //When
+        List<Customer> actual = underTest.insertCustomers(List.of(fresh, conflicting));
+
+        //Then
+        assertThat(actual).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isNotNull();
+            assertThat(c.getEmail()).isEqualTo(fresh.getEmail());
+            assertThat(c.getAge()).isEqualTo(fresh.getAge());
+        });
+        assertThat(underTest.selectUserByEmail(existing.getEmail()))
+                .hasValueSatisfying(c -> assertThat(c.getAge()).isEqualTo(existing.getAge()));
+    }
+
+    @Test
+    void shouldSelectCredentialsByEmail() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+        Customer inserted = underTest.selectUserByEmail(email).orElseThrow();
+
+        //When
+        Optional<CustomerCredentials> actual = underTest.selectCredentialsByEmail(email);
+
+        //Then
+        assertThat(actual).contains(new CustomerCredentials(inserted.getId(), inserted.getName(), email, 20,
+                Gender.MALE, "password", Roles.USER, inserted.getVersion()));
+        assertThat(underTest.selectCredentialsByEmail("missing-" + email)).isEmpty();
+    }
+
     @Test
     void shouldExistsCustomerWithId() {
         //Given
@@ -175,12 +412,63 @@ class CustomerJDBCDataAccessServiceIntegrationTest extends AbstractTestContainer
                 .orElseThrow();
 
         //When
-        underTest.deleteCustomerById(id);
+        int actual = underTest.deleteCustomerById(id);
 
         //Then
+        assertThat(actual).isEqualTo(1);
         assertThat(underTest.existsCustomerWithId(id)).isFalse();
     }
 
+    @Test
+    void shouldReportNothingDeletedWhenCustomerMissing() {
+        //When
+        int actual = underTest.deleteCustomerById(-1);
+
+        //Then
+        assertThat(actual).isZero();
+    }
+
+    @Test
+    void shouldReturnExistingIds() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+        Integer id = underTest.selectUserByEmail(customer.getEmail()).map(Customer::getId).orElseThrow();
+
+        //When
+        Set<Integer> actual = underTest.existsCustomersWithIds(List.of(id, -1));
+
+        //Then
+        assertThat(actual).containsExactly(id);
+    }
+
+    @Test
+    void shouldReturnExistingEmails() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String missing = "missing-" + email;
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+
+        //When
+        Set<String> actual = underTest.existsCustomersWithEmails(List.of(email, missing));
+
+        //Then
+        assertThat(actual).containsExactly(email);
+    }
+
     @Test
     void shouldUpdateCustomer() {
         Customer customer = new Customer(
@@ -216,4 +504,88 @@ class CustomerJDBCDataAccessServiceIntegrationTest extends AbstractTestContainer
                 }
         );
     }
+
+    @Test
+    void shouldUpdateOnlyChangedColumns() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.FEMALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+        Integer id = underTest.selectUserByEmail(customer.getEmail()).map(Customer::getId).orElseThrow();
+
+        //When
+        CustomerUpdateResult actual = underTest.updateCustomer(id, new CustomerUpdate("Vova", null, 21, null));
+
+        //Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(actual.customer()).satisfies(c -> {
+            assertThat(c.getId()).isEqualTo(id);
+            assertThat(c.getName()).isEqualTo("Vova");
+            assertThat(c.getAge()).isEqualTo(21);
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+            assertThat(c.getGender()).isEqualTo(Gender.FEMALE);
+            assertThat(c.getPassword()).isEqualTo("password");
+        });
+    }
+
+    @Test
+    void shouldReportUnchangedWhenUpdateMatchesRow() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(customer);
+        Integer id = underTest.selectUserByEmail(customer.getEmail()).map(Customer::getId).orElseThrow();
+
+        //When
+        CustomerUpdateResult actual = underTest.updateCustomer(id,
+                new CustomerUpdate(customer.getName(), customer.getEmail(), 20, Gender.MALE));
+
+        //Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UNCHANGED);
+    }
+
+    @Test
+    void shouldReportNotFoundWhenUpdatingMissingCustomer() {
+        //When
+        CustomerUpdateResult actual = underTest.updateCustomer(-1, new CustomerUpdate("Vova", null, null, null));
+
+        //Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.NOT_FOUND);
+    }
+
+    @Test
+    void shouldFailUpdateWhenEmailTaken() {
+        //Given
+        Customer first = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE,
+                "password"
+        );
+        Customer second = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20,
+                Gender.MALE,
+                "password"
+        );
+        underTest.insertCustomer(first);
+        underTest.insertCustomer(second);
+        Integer id = underTest.selectUserByEmail(second.getEmail()).map(Customer::getId).orElseThrow();
+
+        //Then
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerUpdate(null, first.getEmail(), null, null)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
 }
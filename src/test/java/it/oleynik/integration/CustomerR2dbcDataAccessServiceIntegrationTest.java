@@ -0,0 +1,112 @@
+package it.oleynik.integration;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import it.oleynik.AbstractTestContainers;
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerR2dbcDataAccessService;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.CustomerUpdateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerR2dbcDataAccessServiceIntegrationTest extends AbstractTestContainers {
+
+    private CustomerR2dbcDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                .option(ConnectionFactoryOptions.HOST, postgreSQLContainer.getHost())
+                .option(ConnectionFactoryOptions.PORT, postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT))
+                .option(ConnectionFactoryOptions.DATABASE, postgreSQLContainer.getDatabaseName())
+                .option(ConnectionFactoryOptions.USER, postgreSQLContainer.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, postgreSQLContainer.getPassword())
+                .build();
+        underTest = new CustomerR2dbcDataAccessService(DatabaseClient.create(ConnectionFactories.get(options)));
+    }
+
+    @Test
+    void shouldInsertAndSelectCustomerByEmail() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20, Gender.MALE, "password")).block();
+
+        //When
+        Customer actual = underTest.selectUserByEmail(email).block();
+
+        //Then
+        assertThat(actual).isNotNull();
+        assertThat(actual.getEmail()).isEqualTo(email);
+        assertThat(underTest.selectCustomerById(actual.getId()).block()).isEqualTo(actual);
+        assertThat(underTest.existsCustomerWithEmail(email).block()).isTrue();
+    }
+
+    @Test
+    void shouldStreamAllCustomersInIdOrder() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20,
+                    Gender.FEMALE,
+                    "password"
+            )).block();
+        }
+
+        //When
+        List<Integer> actual = underTest.selectAllCustomers()
+                .limitRate(1)
+                .map(Customer::getId)
+                .collectList()
+                .block();
+
+        //Then
+        assertThat(actual).hasSizeGreaterThanOrEqualTo(3).isSorted();
+    }
+
+    @Test
+    void shouldUpdateOnlyChangedFields() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("Vova", email, 20, Gender.MALE, "password")).block();
+        Integer id = underTest.selectUserByEmail(email).map(Customer::getId).block();
+
+        //When
+        CustomerUpdateResult updated = underTest.updateCustomer(id, new CustomerUpdate("Borys", null, null, null)).block();
+        CustomerUpdateResult unchanged = underTest.updateCustomer(id, new CustomerUpdate("Borys", null, 20, null)).block();
+        CustomerUpdateResult notFound = underTest.updateCustomer(-1, new CustomerUpdate("Borys", null, null, null)).block();
+
+        //Then
+        assertThat(updated.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(updated.customer().getName()).isEqualTo("Borys");
+        assertThat(unchanged.status()).isEqualTo(CustomerUpdateResult.Status.UNCHANGED);
+        assertThat(notFound.status()).isEqualTo(CustomerUpdateResult.Status.NOT_FOUND);
+    }
+
+    @Test
+    void shouldReturnDeletedRowCount() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("Vova", email, 20, Gender.MALE, "password")).block();
+        Integer id = underTest.selectUserByEmail(email).map(Customer::getId).block();
+
+        //When
+        Long deleted = underTest.deleteCustomerById(id).block();
+        Long deletedAgain = underTest.deleteCustomerById(id).block();
+
+        //Then
+        assertThat(deleted).isEqualTo(1);
+        assertThat(deletedAgain).isZero();
+    }
+}
@@ -0,0 +1,102 @@
+package it.oleynik.integration;
+
+import it.oleynik.AbstractTestContainers;
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerDTORowMapper;
+import it.oleynik.customer.db.CustomerJDBCDataAccessService;
+import it.oleynik.customer.db.CustomerRowMapper;
+import it.oleynik.customer.db.CustomerSearch;
+import it.oleynik.customer.db.CustomerSearchQuery;
+import it.oleynik.customer.dto.CustomerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerSearchIndexIntegrationTest extends AbstractTestContainers {
+
+    private static final int CUSTOMERS = 20_000;
+
+    private JdbcTemplate jdbcTemplate;
+    private CustomerJDBCDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper(), new CustomerDTORowMapper());
+
+        if (!underTest.existsCustomerWithEmail("search-0@mail.com")) {
+            List<Customer> customers = new ArrayList<>();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                customers.add(new Customer(
+                        UUID.randomUUID() + " " + FAKER.name().lastName(),
+                        "search-" + i + "@mail.com",
+                        18 + i % 80,
+                        i % 2 == 0 ? Gender.MALE : Gender.FEMALE,
+                        "password"
+                ));
+            }
+            underTest.insertCustomers(customers);
+            jdbcTemplate.execute("ANALYZE customer");
+        }
+    }
+
+    @Test
+    void shouldUsePatternIndexForNamePrefix() {
+        //Given
+        String name = underTest.selectUserByEmail("search-42@mail.com").map(Customer::getName).orElseThrow();
+        CustomerSearch search = search(name.substring(0, 8), null, null, null, null);
+
+        //When
+        String plan = explain(search);
+
+        //Then
+        assertThat(plan).contains("customer_name_pattern_idx");
+        assertThat(underTest.searchCustomers(search)).extracting(CustomerDTO::name).contains(name);
+    }
+
+    @Test
+    void shouldUseLowerEmailIndexForEmail() {
+        //Given
+        CustomerSearch search = search(null, "SEARCH-42@Mail.com", null, null, null);
+
+        //When
+        String plan = explain(search);
+
+        //Then
+        assertThat(plan).contains("customer_email_lower_idx");
+        assertThat(underTest.searchCustomers(search)).extracting(CustomerDTO::email).containsExactly("search-42@mail.com");
+    }
+
+    @Test
+    void shouldUseGenderAgeIndexForAgeRangeAndGender() {
+        //Given
+        CustomerSearch search = search(null, null, 30, 30, Gender.MALE);
+
+        //When
+        String plan = explain(search);
+
+        //Then
+        assertThat(plan).contains("customer_gender_age_idx");
+        assertThat(underTest.searchCustomers(search)).allSatisfy(customer -> {
+            assertThat(customer.age()).isEqualTo(30);
+            assertThat(customer.gender()).isEqualTo(Gender.MALE);
+        });
+    }
+
+    private static CustomerSearch search(String namePrefix, String email, Integer minAge, Integer maxAge, Gender gender) {
+        return new CustomerSearch(namePrefix, email, minAge, maxAge, gender, CustomerSearch.SortField.ID, false, 50, 0);
+    }
+
+    private String explain(CustomerSearch search) {
+        CustomerSearchQuery query = CustomerSearchQuery.from(search);
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query.sql(), String.class, query.args().toArray()));
+        return plan;
+    }
+}
@@ -0,0 +1,100 @@
+package it.oleynik.integration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.oleynik.AbstractTestContainers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HikariPoolExhaustionIntegrationTest extends AbstractTestContainers {
+
+    private static final int POOL_SIZE = 2;
+
+    private HikariDataSource dataSource;
+    private SimpleMeterRegistry meterRegistry;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgreSQLContainer.getJdbcUrl());
+        dataSource.setUsername(postgreSQLContainer.getUsername());
+        dataSource.setPassword(postgreSQLContainer.getPassword());
+        dataSource.setPoolName("exhaustion-test");
+        dataSource.setMaximumPoolSize(POOL_SIZE);
+        dataSource.setMinimumIdle(POOL_SIZE);
+        dataSource.setConnectionTimeout(250);
+        dataSource.setMetricRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        dataSource.close();
+    }
+
+    @Test
+    void shouldTimeOutWhenAllConnectionsAreBorrowed() throws Exception {
+        //Given
+        CompletableFuture<Void> holder = holdAllConnections();
+
+        //When
+        //Then
+        try {
+            assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessageContaining("Connection is not available");
+            assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isEqualTo(POOL_SIZE);
+            assertThat(meterRegistry.get("hikaricp.connections.timeout").counter().count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldLendConnectionAgainOnceReleased() throws Exception {
+        //Given
+        CompletableFuture<Void> holder = holdAllConnections();
+        assertThatThrownBy(dataSource::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class);
+
+        //When
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+
+        //Then
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+        assertThat(dataSource.getHikariPoolMXBean().getActiveConnections()).isZero();
+        assertThat(meterRegistry.get("hikaricp.connections.acquire").timer().count()).isGreaterThanOrEqualTo(3);
+    }
+
+    // borrows the whole pool on another thread and keeps it until release is counted down
+    private CompletableFuture<Void> holdAllConnections() throws InterruptedException {
+        CountDownLatch borrowed = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (Connection first = dataSource.getConnection();
+                 Connection second = dataSource.getConnection()) {
+                borrowed.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(borrowed.await(5, TimeUnit.SECONDS)).isTrue();
+        return holder;
+    }
+}
@@ -0,0 +1,99 @@
+package it.oleynik.unit;
+
+import it.oleynik.jwt.CachingJwtDecoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingJwtDecoderTest {
+
+    @Mock
+    private JwtDecoder delegate;
+    private CachingJwtDecoder underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CachingJwtDecoder(delegate, 100);
+    }
+
+    @Test
+    void shouldVerifyTokenOnlyOnce() {
+        // Given
+        String token = "header.payload.signature";
+        Jwt jwt = jwt(token, Instant.now().plus(1, ChronoUnit.HOURS));
+        when(delegate.decode(token)).thenReturn(jwt);
+
+        // When
+        underTest.decode(token);
+        Jwt actual = underTest.decode(token);
+
+        // Then
+        assertThat(actual).isSameAs(jwt);
+        verify(delegate, times(1)).decode(token);
+        assertThat(underTest.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheExpiredToken() {
+        // Given
+        String token = "header.payload.signature";
+        Jwt jwt = jwt(token, Instant.now().minus(1, ChronoUnit.MINUTES));
+        when(delegate.decode(token)).thenReturn(jwt);
+
+        // When
+        underTest.decode(token);
+        underTest.decode(token);
+
+        // Then
+        verify(delegate, times(2)).decode(token);
+    }
+
+    @Test
+    void shouldNotCacheRejectedToken() {
+        // Given
+        String token = "header.payload.forged";
+        when(delegate.decode(token)).thenThrow(new BadJwtException("invalid signature"));
+
+        // Then
+        assertThatThrownBy(() -> underTest.decode(token)).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> underTest.decode(token)).isInstanceOf(BadJwtException.class);
+        verify(delegate, times(2)).decode(token);
+    }
+
+    @Test
+    void shouldVerifyAgainAfterFlush() {
+        // Given
+        String token = "header.payload.signature";
+        when(delegate.decode(token)).thenReturn(jwt(token, Instant.now().plus(1, ChronoUnit.HOURS)));
+        underTest.decode(token);
+
+        // When
+        underTest.invalidateAll();
+        underTest.decode(token);
+
+        // Then
+        verify(delegate, times(2)).decode(token);
+    }
+
+    private static Jwt jwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("vova@gmail.com")
+                .issuedAt(expiresAt.minus(8, ChronoUnit.HOURS))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package it.oleynik.unit;
+
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.bulk.BulkImportResponse;
+import it.oleynik.customer.bulk.BulkImportRowResult;
+import it.oleynik.customer.bulk.CustomerBulkImportService;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBulkImportServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    private CustomerBulkImportService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBulkImportService(customerDao, passwordEncoder, 2, Executors.newFixedThreadPool(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void shouldImportCustomersInChunks() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Vova", "vova@gmail.com", 20, Gender.MALE, "password"),
+                new CustomerRegistrationRequest("Borys", "borys@gmail.com", 21, Gender.MALE, "password"),
+                new CustomerRegistrationRequest("Olha", "olha@gmail.com", 22, Gender.FEMALE, "password")
+        );
+        when(passwordEncoder.encode("password")).thenReturn("hash");
+        when(customerDao.existsCustomersWithEmails(anyCollection())).thenReturn(Set.of());
+        when(customerDao.insertCustomers(anyList())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            return customers.stream()
+                    .map(c -> new Customer(c.getEmail().length(), c.getName(), c.getEmail(), c.getAge(), c.getGender(), c.getPassword()))
+                    .toList();
+        });
+
+        // When
+        BulkImportResponse actual = underTest.importCustomers(requests.iterator());
+
+        // Then
+        assertThat(actual.total()).isEqualTo(3);
+        assertThat(actual.created()).isEqualTo(3);
+        assertThat(actual.rows()).extracting(BulkImportRowResult::row).containsExactly(0, 1, 2);
+        assertThat(actual.rows()).extracting(BulkImportRowResult::id)
+                .containsExactly("vova@gmail.com".length(), "borys@gmail.com".length(), "olha@gmail.com".length());
+        verify(customerDao, times(2)).insertCustomers(anyList());
+        verify(passwordEncoder, times(3)).encode("password");
+    }
+
+    @Test
+    void shouldRejectInvalidDuplicatedAndTakenEmails() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Vova", "vova@gmail.com", 20, Gender.MALE, "password"),
+                new CustomerRegistrationRequest("Vova", "vova@gmail.com", 20, Gender.MALE, "password"),
+                new CustomerRegistrationRequest("Borys", null, 21, Gender.MALE, "password"),
+                new CustomerRegistrationRequest("Olha", "olha@gmail.com", 22, Gender.FEMALE, "password")
+        );
+        when(customerDao.existsCustomersWithEmails(anyCollection())).thenReturn(Set.of());
+        when(customerDao.existsCustomersWithEmails(argThat(emails -> emails.contains("olha@gmail.com"))))
+                .thenReturn(Set.of("olha@gmail.com"));
+        when(passwordEncoder.encode("password")).thenReturn("hash");
+        when(customerDao.insertCustomers(anyList())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            return customers.stream()
+                    .map(c -> new Customer(1, c.getName(), c.getEmail(), c.getAge(), c.getGender(), c.getPassword()))
+                    .toList();
+        });
+
+        // When
+        BulkImportResponse actual = underTest.importCustomers(requests.iterator());
+
+        // Then
+        assertThat(actual.created()).isEqualTo(1);
+        assertThat(actual.rejected()).isEqualTo(3);
+        assertThat(actual.rows()).extracting(BulkImportRowResult::message).containsExactly(
+                null,
+                "duplicated email in request",
+                "missing required fields",
+                "email already taken"
+        );
+        verify(passwordEncoder, times(1)).encode("password");
+    }
+}
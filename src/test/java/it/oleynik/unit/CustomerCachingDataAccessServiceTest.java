@@ -0,0 +1,174 @@
+package it.oleynik.unit;
+
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerCachingDataAccessService;
+import it.oleynik.customer.db.CustomerCredentials;
+import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.db.Roles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerCachingDataAccessServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    private CustomerCachingDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerCachingDataAccessService(customerDao, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldServeRepeatedLookupByIdFromCache() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        // When
+        underTest.selectCustomerById(id);
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(actual).contains(customer);
+        verify(customerDao, times(1)).selectCustomerById(id);
+        assertThat(underTest.customerStats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldServeLookupByEmailFromEntryLoadedById() {
+        // Given
+        int id = 1;
+        String email = "vova@gmail.com";
+        Customer customer = new Customer(id, "Vova", email, 22, Gender.MALE, "password");
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        underTest.selectCustomerById(id);
+
+        // When
+        Optional<Customer> actual = underTest.selectUserByEmail(email);
+
+        // Then
+        assertThat(actual).contains(customer);
+        verify(customerDao, never()).selectUserByEmail(email);
+    }
+
+    @Test
+    void shouldLoadCredentialsFromBackendEvenWhenCustomerIsCached() {
+        // Given
+        int id = 1;
+        String email = "vova@gmail.com";
+        Customer customer = new Customer(id, "Vova", email, 22, Gender.MALE, "password");
+        CustomerCredentials changed = new CustomerCredentials(id, "Vova", email, 22, Gender.MALE,
+                "changed-password", Roles.USER, 1);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.selectCredentialsByEmail(email)).thenReturn(Optional.of(changed));
+        underTest.selectCustomerById(id);
+
+        // When
+        Optional<CustomerCredentials> actual = underTest.selectCredentialsByEmail(email);
+
+        // Then
+        assertThat(actual).contains(changed);
+        verify(customerDao).selectCredentialsByEmail(email);
+    }
+
+    @Test
+    void shouldCacheInsertedRow() {
+        // Given
+        String email = "vova@gmail.com";
+        Customer customer = new Customer("Vova", email, 22, Gender.MALE, "password");
+        Customer inserted = new Customer(1, "Vova", email, 22, Gender.MALE, "password");
+        when(customerDao.insertCustomer(customer)).thenReturn(inserted);
+
+        // When
+        underTest.insertCustomer(customer);
+        Optional<Customer> actual = underTest.selectUserByEmail(email);
+
+        // Then
+        assertThat(actual).contains(inserted);
+        verify(customerDao).insertCustomer(customer);
+        verifyNoMoreInteractions(customerDao);
+    }
+
+    @Test
+    void shouldNotLeakCachedInstance() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        underTest.selectCustomerById(id).orElseThrow().setName("Borys");
+
+        // When
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(actual).hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Vova"));
+    }
+
+    @Test
+    void shouldEvictOnUpdate() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        underTest.selectCustomerById(id);
+
+        // When
+        underTest.updateCustomer(customer);
+        underTest.selectCustomerById(id);
+
+        // Then
+        verify(customerDao).updateCustomer(customer);
+        verify(customerDao, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void shouldNotCacheRowLoadedBeforeConcurrentDelete() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+        when(customerDao.selectCustomerById(id)).thenAnswer(invocation -> {
+            underTest.deleteCustomerById(id);
+            return Optional.of(customer);
+        }).thenReturn(Optional.empty());
+
+        // When
+        underTest.selectCustomerById(id);
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(actual).isEmpty();
+        verify(customerDao, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void shouldEvictOnDelete() {
+        // Given
+        int id = 1;
+        String email = "vova@gmail.com";
+        Customer customer = new Customer(id, "Vova", email, 22, Gender.MALE, "password");
+        when(customerDao.selectUserByEmail(email)).thenReturn(Optional.of(customer));
+        underTest.selectUserByEmail(email);
+
+        // When
+        underTest.deleteCustomerById(id);
+        boolean actual = underTest.existsCustomerWithEmail(email);
+
+        // Then
+        assertThat(actual).isFalse();
+        verify(customerDao).deleteCustomerById(id);
+        verify(customerDao).existsCustomerWithEmail(email);
+    }
+}
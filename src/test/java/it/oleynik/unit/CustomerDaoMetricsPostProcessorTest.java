@@ -0,0 +1,94 @@
+package it.oleynik.unit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.oleynik.config.CustomerDaoMetricsPostProcessor;
+import it.oleynik.customer.db.CustomerDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerDaoMetricsPostProcessorTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    private MeterRegistry meterRegistry;
+    private CustomerDaoMetricsPostProcessor underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        underTest = new CustomerDaoMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void shouldTimeCallsTaggedByImplementation() {
+        // Given
+        when(customerDao.selectCustomerById(1)).thenReturn(Optional.empty());
+        CustomerDao metered = (CustomerDao) underTest.postProcessAfterInitialization(customerDao, "jdbc");
+
+        // When
+        metered.selectCustomerById(1);
+
+        // Then
+        Timer timer = meterRegistry.get("customer.dao")
+                .tags("implementation", "jdbc", "method", "selectCustomerById", "outcome", "success")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordErrorsSeparately() {
+        // Given
+        when(customerDao.deleteCustomerById(1)).thenThrow(new IllegalStateException("boom"));
+        CustomerDao metered = (CustomerDao) underTest.postProcessAfterInitialization(customerDao, "jpa");
+
+        // When
+        assertThatThrownBy(() -> metered.deleteCustomerById(1)).isInstanceOf(IllegalStateException.class);
+
+        // Then
+        Timer timer = meterRegistry.get("customer.dao")
+                .tags("implementation", "jpa", "method", "deleteCustomerById", "outcome", "error")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotWrapTwice() {
+        // Given
+        Object metered = underTest.postProcessAfterInitialization(customerDao, "list");
+
+        // When
+        Object actual = underTest.postProcessAfterInitialization(metered, "list");
+
+        // Then
+        assertThat(actual).isSameAs(metered);
+        assertThat(((Advised) actual).getAdvisors()).hasSize(1);
+    }
+
+    @Test
+    void shouldIgnoreOtherBeans() {
+        // Given
+        Object bean = new Object();
+
+        // When
+        Object actual = underTest.postProcessAfterInitialization(bean, "other");
+
+        // Then
+        assertThat(actual).isSameAs(bean);
+    }
+}
@@ -0,0 +1,149 @@
+package it.oleynik.unit;
+
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.db.CustomerEmailFilterDataAccessService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEmailFilterDataAccessServiceTest {
+
+    @Mock
+    private CustomerDao customerDao;
+    @Mock
+    private ExecutorService rebuildExecutor;
+    private CustomerEmailFilterDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerEmailFilterDataAccessService(customerDao, 100, 0.01, rebuildExecutor);
+    }
+
+    @Test
+    void shouldAskBackendUntilFilterIsBuilt() {
+        // Given
+        String email = "vova@gmail.com";
+
+        // When
+        underTest.existsCustomerWithEmail(email);
+
+        // Then
+        verify(customerDao).existsCustomerWithEmail(email);
+    }
+
+    @Test
+    void shouldAnswerUnknownEmailWithoutBackend() {
+        // Given
+        givenStoredEmails("vova@gmail.com");
+        underTest.rebuild();
+
+        // When
+        boolean exists = underTest.existsCustomerWithEmail("borys@gmail.com");
+
+        // Then
+        assertThat(exists).isFalse();
+        verify(customerDao, never()).existsCustomerWithEmail(any());
+        assertThat(underTest.negatives()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAlwaysAskBackendForCredentials() {
+        // Given
+        givenStoredEmails("vova@gmail.com");
+        underTest.rebuild();
+        when(customerDao.selectCredentialsByEmail("borys@gmail.com")).thenReturn(Optional.empty());
+
+        // When
+        Optional<?> credentials = underTest.selectCredentialsByEmail("borys@gmail.com");
+
+        // Then
+        assertThat(credentials).isEmpty();
+        verify(customerDao).selectCredentialsByEmail("borys@gmail.com");
+        assertThat(underTest.negatives()).isZero();
+    }
+
+    @Test
+    void shouldAskBackendForKnownEmail() {
+        // Given
+        String email = "vova@gmail.com";
+        givenStoredEmails(email);
+        underTest.rebuild();
+        when(customerDao.existsCustomerWithEmail(email)).thenReturn(true);
+
+        // When
+        boolean actual = underTest.existsCustomerWithEmail(email);
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void shouldAddInsertedEmail() {
+        // Given
+        givenStoredEmails();
+        underTest.rebuild();
+        Customer customer = new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+        Customer inserted = new Customer(1, "Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+        when(customerDao.insertCustomer(customer)).thenReturn(inserted);
+        when(customerDao.existsCustomerWithEmail("vova@gmail.com")).thenReturn(true);
+
+        // When
+        underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(underTest.existsCustomerWithEmail("vova@gmail.com")).isTrue();
+    }
+
+    @Test
+    void shouldOnlySendPossibleEmailsToBackend() {
+        // Given
+        givenStoredEmails("vova@gmail.com");
+        underTest.rebuild();
+        when(customerDao.existsCustomersWithEmails(List.of("vova@gmail.com"))).thenReturn(Set.of("vova@gmail.com"));
+
+        // When
+        Set<String> actual = underTest.existsCustomersWithEmails(List.of("vova@gmail.com", "borys@gmail.com"));
+
+        // Then
+        assertThat(actual).containsExactly("vova@gmail.com");
+    }
+
+    @Test
+    void shouldScheduleRebuildOnceStaleEmailsOutgrowCapacity() {
+        // Given
+        givenStoredEmails();
+        underTest.rebuild();
+        when(customerDao.deleteCustomerById(any())).thenReturn(1);
+
+        // When
+        for (int id = 1; id <= 101; id++) {
+            underTest.deleteCustomerById(id);
+        }
+
+        // Then
+        verify(rebuildExecutor).execute(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenStoredEmails(String... emails) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            List.of(emails).forEach(consumer);
+            return null;
+        }).when(customerDao).streamAllEmails(any(Consumer.class));
+    }
+}
@@ -0,0 +1,189 @@
+package it.oleynik.unit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.db.CustomerInsertBatcher;
+import it.oleynik.customer.db.CustomerListDataAccessService;
+import it.oleynik.exception.DuplicatedResourceException;
+import it.oleynik.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class CustomerInsertBatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerInsertBatcher underTest;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.destroy();
+    }
+
+    @Test
+    void shouldInsertQueuedRegistrationsInOneBatch() throws Exception {
+        // Given
+        CustomerListDataAccessService customerDao = new CustomerListDataAccessService(List.of());
+        underTest = batcher(customerDao, 10, 3, Duration.ofSeconds(5));
+
+        // When
+        List<CompletableFuture<Customer>> results = List.of(
+                underTest.insert(customer("alex@gmail.com")),
+                underTest.insert(customer("jamila@gmail.com")),
+                underTest.insert(customer("john@gmail.com")));
+
+        // Then
+        for (CompletableFuture<Customer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        assertThat(customerDao.selectAllCustomers()).hasSize(3);
+        DistributionSummary batchSizes = meterRegistry.get("customer.insert.batch.size").summary();
+        assertThat(batchSizes.count()).isEqualTo(1);
+        assertThat(batchSizes.totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldFlushPartialBatchAfterMaxDelay() throws Exception {
+        // Given
+        CustomerListDataAccessService customerDao = new CustomerListDataAccessService(List.of());
+        underTest = batcher(customerDao, 10, 100, Duration.ofMillis(10));
+
+        // When
+        Customer actual = underTest.insert(customer("alex@gmail.com")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(actual.getEmail()).isEqualTo("alex@gmail.com");
+        assertThat(customerDao.existsCustomerWithEmail("alex@gmail.com")).isTrue();
+    }
+
+    @Test
+    void shouldRejectDuplicatedEmails() throws Exception {
+        // Given
+        CustomerListDataAccessService customerDao = new CustomerListDataAccessService(List.of(
+                new Customer(1, "Taken", "taken@gmail.com", 20, Gender.MALE, "password")));
+        underTest = batcher(customerDao, 10, 3, Duration.ofSeconds(5));
+
+        // When
+        CompletableFuture<Customer> first = underTest.insert(customer("alex@gmail.com"));
+        CompletableFuture<Customer> second = underTest.insert(customer("alex@gmail.com"));
+        CompletableFuture<Customer> taken = underTest.insert(customer("taken@gmail.com"));
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS).getEmail()).isEqualTo("alex@gmail.com");
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DuplicatedResourceException.class);
+        assertThatThrownBy(() -> taken.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DuplicatedResourceException.class);
+    }
+
+    @Test
+    void shouldFallBackToSingleInsertsWhenBatchFails() throws Exception {
+        // Given
+        CustomerDao customerDao = mock(CustomerDao.class);
+        Customer alex = customer("alex@gmail.com");
+        Customer jamila = customer("jamila@gmail.com");
+        Customer stored = new Customer(2, "Name", "jamila@gmail.com", 20, Gender.MALE, "password");
+        when(customerDao.insertCustomers(anyList())).thenThrow(new DataIntegrityViolationException("unique"));
+        when(customerDao.insertCustomer(alex)).thenThrow(new DuplicateKeyException("unique"));
+        when(customerDao.insertCustomer(jamila)).thenReturn(stored);
+        underTest = batcher(customerDao, 10, 2, Duration.ofSeconds(5));
+
+        // When
+        CompletableFuture<Customer> first = underTest.insert(alex);
+        CompletableFuture<Customer> second = underTest.insert(jamila);
+
+        // Then
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DuplicatedResourceException.class);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(stored);
+    }
+
+    @Test
+    void shouldSendEachEmailOnceToBackend() throws Exception {
+        // Given
+        CustomerDao customerDao = mock(CustomerDao.class);
+        Customer stored = new Customer(1, "Name", "alex@gmail.com", 20, Gender.MALE, "password");
+        when(customerDao.insertCustomers(anyList())).thenReturn(List.of(stored));
+        underTest = batcher(customerDao, 10, 2, Duration.ofSeconds(5));
+
+        // When
+        CompletableFuture<Customer> first = underTest.insert(customer("alex@gmail.com"));
+        CompletableFuture<Customer> second = underTest.insert(customer("alex@gmail.com"));
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(stored);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DuplicatedResourceException.class);
+        verify(customerDao).insertCustomers(argThat(customers -> customers.size() == 1));
+    }
+
+    @Test
+    void shouldRejectAfterShutdown() throws InterruptedException {
+        // Given
+        underTest = batcher(new CustomerListDataAccessService(List.of()), 10, 2, Duration.ofMillis(10));
+        underTest.destroy();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insert(customer("alex@gmail.com")))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CustomerDao customerDao = mock(CustomerDao.class);
+        when(customerDao.insertCustomers(anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        underTest = batcher(customerDao, 1, 1, Duration.ZERO);
+        underTest.insert(customer("writing@gmail.com"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.insert(customer("queued@gmail.com"));
+
+        // When
+        // Then
+        try {
+            assertThatThrownBy(() -> underTest.insert(customer("rejected@gmail.com")))
+                    .isInstanceOf(ServiceUnavailableException.class)
+                    .hasMessageContaining("queue is full");
+            assertThat(meterRegistry.get("customer.insert.rejected").counter().count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private CustomerInsertBatcher batcher(CustomerDao customerDao, int queueCapacity, int batchSize, Duration maxDelay) {
+        return new CustomerInsertBatcher(customerDao, queueCapacity, batchSize, maxDelay,
+                Executors.newSingleThreadExecutor(new CustomizableThreadFactory("test-insert-")), meterRegistry);
+    }
+
+    private static Customer customer(String email) {
+        return new Customer("Name", email, 20, Gender.MALE, "password");
+    }
+}
@@ -4,13 +4,20 @@ import it.oleynik.customer.Gender;
 import it.oleynik.customer.db.Customer;
 import it.oleynik.customer.db.CustomerJPADataAccessService;
 import it.oleynik.customer.db.CustomerRepository;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.CustomerUpdateResult;
+import it.oleynik.customer.db.Roles;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
-import static org.mockito.Mockito.verify;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class CustomerJPADataAccessServiceTest {
@@ -33,6 +40,18 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findAll();
     }
 
+    @Test
+    void shouldSelectCustomersPage() {
+        // Given
+        int afterId = 10, limit = 20;
+
+        // When
+        underTest.selectCustomersPage(afterId, limit);
+
+        // Then
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
     @Test
     void shouldSelectCustomerById() {
         // Given
@@ -90,17 +109,67 @@ class CustomerJPADataAccessServiceTest {
         underTest.deleteCustomerById(id);
 
         // Then
-        verify(customerRepository).deleteById(id);
+        verify(customerRepository).deleteCustomerById(id);
     }
 
     @Test
     void shouldUpdateCustomer() {
-        Customer customer = new Customer("Vova", "vova@gmail.com", 22, Gender.FEMALE,  "password");
+        Customer customer = new Customer(1, "Vova", "vova@gmail.com", 22, Gender.FEMALE,  "password");
 
         // When
         underTest.updateCustomer(customer);
 
         // Then
-        verify(customerRepository).save(customer);
+        verify(customerRepository).updateCustomerById(1, "Vova", "vova@gmail.com", 22, Gender.FEMALE,
+                "password", Roles.USER);
+    }
+
+    @Test
+    void shouldReportMissingCustomerOnUpdate() {
+        // Given
+        Customer customer = new Customer(1, "Vova", "vova@gmail.com", 22, Gender.FEMALE,  "password");
+
+        // When
+        int actual = underTest.updateCustomer(customer);
+
+        // Then
+        assertThat(actual).isZero();
+    }
+
+    @Test
+    void shouldReportVersionMismatchWhenConcurrentUpdateWins() {
+        // Given
+        Customer stored = new Customer(1, "Vova", "vova@gmail.com", 22, Gender.FEMALE,  "password");
+        stored.setVersion(3);
+        when(customerRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(customerRepository.updateCustomerByIdAndVersion(1, "Borys", "vova@gmail.com", 22, Gender.FEMALE, 3))
+                .thenReturn(0);
+        when(customerRepository.existsCustomerById(1)).thenReturn(true);
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(1, new CustomerUpdate("Borys", null, null, null), 3L);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+        assertThat(stored.getName()).isEqualTo("Vova");
+        verify(customerRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldReturnBumpedVersionAfterUpdate() {
+        // Given
+        Customer stored = new Customer(1, "Vova", "vova@gmail.com", 22, Gender.FEMALE,  "password");
+        stored.setVersion(3);
+        when(customerRepository.findById(1)).thenReturn(Optional.of(stored));
+        when(customerRepository.updateCustomerByIdAndVersion(1, "Borys", "vova@gmail.com", 22, Gender.FEMALE, 3))
+                .thenReturn(1);
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(1, new CustomerUpdate("Borys", null, null, null), null);
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(actual.customer().getName()).isEqualTo("Borys");
+        assertThat(actual.customer().getVersion()).isEqualTo(4);
     }
 }
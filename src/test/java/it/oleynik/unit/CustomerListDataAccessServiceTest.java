@@ -0,0 +1,175 @@
+package it.oleynik.unit;
+
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerListDataAccessService;
+import it.oleynik.customer.db.CustomerSearch;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.CustomerUpdateResult;
+import it.oleynik.customer.dto.CustomerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService(List.of());
+    }
+
+    @Test
+    void shouldAssignIdsAndIndexByEmail() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+
+        // When
+        Customer actual = underTest.selectUserByEmail("vova@gmail.com").orElseThrow();
+
+        // Then
+        assertThat(actual.getId()).isEqualTo(1);
+        assertThat(underTest.existsCustomerWithId(1)).isTrue();
+        assertThat(underTest.existsCustomerWithEmail("vova@gmail.com")).isTrue();
+    }
+
+    @Test
+    void shouldRejectDuplicatedEmail() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(
+                new Customer("Borys", "vova@gmail.com", 30, Gender.MALE, "password")))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectAllCustomers()).hasSize(1);
+    }
+
+    @Test
+    void shouldNotLeakStoredInstance() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+        underTest.selectCustomerById(1).orElseThrow().setName("Borys");
+
+        // When
+        Customer actual = underTest.selectCustomerById(1).orElseThrow();
+
+        // Then
+        assertThat(actual.getName()).isEqualTo("Vova");
+    }
+
+    @Test
+    void shouldReplaceOnUpdateAndMoveEmailIndex() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+
+        // When
+        CustomerUpdateResult actual = underTest.updateCustomer(1, new CustomerUpdate(null, "borys@gmail.com", null, null));
+
+        // Then
+        assertThat(actual.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(underTest.selectAllCustomers()).hasSize(1);
+        assertThat(underTest.existsCustomerWithEmail("vova@gmail.com")).isFalse();
+        assertThat(underTest.selectUserByEmail("borys@gmail.com")).isPresent();
+    }
+
+    @Test
+    void shouldPageByIdAcrossDeletedRows() {
+        // Given
+        for (int i = 1; i <= 5; i++) {
+            underTest.insertCustomer(new Customer("Vova", "vova" + i + "@gmail.com", 22, Gender.MALE, "password"));
+        }
+        underTest.deleteCustomerById(3);
+
+        // When
+        List<Customer> actual = underTest.selectCustomersPage(1, 2);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(2, 4);
+    }
+
+    @Test
+    void shouldRestoreSnapshot() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+        CustomerListDataAccessService.Snapshot snapshot = underTest.snapshot();
+        underTest.deleteCustomerById(1);
+        underTest.insertCustomer(new Customer("Borys", "borys@gmail.com", 30, Gender.MALE, "password"));
+
+        // When
+        underTest.restore(snapshot);
+
+        // Then
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getEmail).containsExactly("vova@gmail.com");
+        underTest.insertCustomer(new Customer("Borys", "borys@gmail.com", 30, Gender.MALE, "password"));
+        assertThat(underTest.selectUserByEmail("borys@gmail.com").orElseThrow().getId()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAcceptOnlyOneConcurrentInsertPerEmail() throws InterruptedException {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger rejected = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            String email = "user" + (i % 100) + "@gmail.com";
+            executor.execute(() -> {
+                try {
+                    underTest.insertCustomer(new Customer("Vova", email, 22, Gender.MALE, "password"));
+                } catch (DuplicateKeyException e) {
+                    rejected.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        assertThat(underTest.selectAllCustomers()).hasSize(100);
+        assertThat(rejected).hasValue(900);
+    }
+
+    @Test
+    void shouldSearchInMemory() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+        underTest.insertCustomer(new Customer("Vlad", "vlad@gmail.com", 35, Gender.MALE, "password"));
+        underTest.insertCustomer(new Customer("Vera", "vera@gmail.com", 30, Gender.FEMALE, "password"));
+        underTest.insertCustomer(new Customer("Borys", "borys@gmail.com", 40, Gender.MALE, "password"));
+
+        // When
+        List<CustomerDTO> actual = underTest.searchCustomers(new CustomerSearch(
+                "V", null, 20, 40, Gender.MALE, CustomerSearch.SortField.AGE, true, 10, 0));
+
+        // Then
+        assertThat(actual).extracting(CustomerDTO::name).containsExactly("Vlad", "Vova");
+    }
+
+    @Test
+    void shouldBumpVersionAndRejectStaleUpdates() {
+        // Given
+        underTest.insertCustomer(new Customer("Vova", "vova@gmail.com", 22, Gender.MALE, "password"));
+
+        // When
+        CustomerUpdateResult updated = underTest.updateCustomer(1, new CustomerUpdate("Volodya", null, null, null), 0L);
+        CustomerUpdateResult stale = underTest.updateCustomer(1, new CustomerUpdate("Borys", null, null, null), 0L);
+
+        // Then
+        assertThat(updated.customer().getVersion()).isEqualTo(1);
+        assertThat(stale.status()).isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+        assertThat(underTest.deleteCustomerById(1, 0)).isZero();
+        assertThat(underTest.deleteCustomerById(1, 1)).isOne();
+    }
+}
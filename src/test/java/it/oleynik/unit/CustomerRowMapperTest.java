@@ -39,6 +39,7 @@ class CustomerRowMapperTest {
         when(rs.getString("email")).thenReturn(email);
         when(rs.getString("gender")).thenReturn(String.valueOf(Gender.FEMALE));
         when(rs.getString("password")).thenReturn("password");
+        when(rs.getString("roles")).thenReturn("ROLE_USER");
 
         // When
         Customer actual = underTest.mapRow(rs, 0);
@@ -4,11 +4,18 @@ import it.oleynik.customer.CustomerService;
 import it.oleynik.customer.Gender;
 import it.oleynik.customer.db.Customer;
 import it.oleynik.customer.db.CustomerDao;
+import it.oleynik.customer.db.CustomerInsertBatcher;
+import it.oleynik.customer.db.CustomerSearch;
+import it.oleynik.customer.db.CustomerUpdate;
+import it.oleynik.customer.db.CustomerUpdateResult;
 import it.oleynik.customer.dto.CustomerDTO;
 import it.oleynik.customer.dto.CustomerDTOMapper;
+import it.oleynik.customer.dto.CustomerPage;
 import it.oleynik.customer.dto.CustomerRegistrationRequest;
+import it.oleynik.customer.dto.CustomerSearchRequest;
 import it.oleynik.customer.dto.CustomerUpdateRequest;
 import it.oleynik.exception.DuplicatedResourceException;
+import it.oleynik.exception.PreconditionFailedException;
 import it.oleynik.exception.RequestValidationException;
 import it.oleynik.exception.ResourceNotFoundException;
 import org.assertj.core.api.Assertions;
@@ -18,9 +25,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 
@@ -45,7 +55,73 @@ class CustomerServiceTest {
         underTest.getAllCustomers();
 
         // Then
-        verify(customerDao).selectAllCustomers();
+        verify(customerDao).selectAllCustomerDTOs();
+    }
+
+    @Test
+    void shouldGetCustomersPageWithNextCursor() {
+        // Given
+        Customer first = new Customer(1, "Vova", "vova@gmail.com", 10, Gender.FEMALE, "foobar");
+        Customer second = new Customer(2, "Borys", "borys@gmail.com", 20, Gender.MALE, "foobar");
+        when(customerDao.selectCustomerDTOsPage(null, 2))
+                .thenReturn(List.of(customerDTOMapper.apply(first), customerDTOMapper.apply(second)));
+
+        // When
+        CustomerPage actual = underTest.getCustomersPage(null, 2);
+
+        // Then
+        Assertions.assertThat(actual.customers())
+                .containsExactly(customerDTOMapper.apply(first), customerDTOMapper.apply(second));
+        Assertions.assertThat(actual.nextCursor()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldGetLastCustomersPageWithoutNextCursor() {
+        // Given
+        Customer customer = new Customer(7, "Vova", "vova@gmail.com", 10, Gender.FEMALE, "foobar");
+        when(customerDao.selectCustomerDTOsPage(5, CustomerService.DEFAULT_PAGE_SIZE))
+                .thenReturn(List.of(customerDTOMapper.apply(customer)));
+
+        // When
+        CustomerPage actual = underTest.getCustomersPage(5, null);
+
+        // Then
+        Assertions.assertThat(actual.customers()).containsExactly(customerDTOMapper.apply(customer));
+        Assertions.assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void shouldThrowWhenPageLimitOutOfRange() {
+        // Then
+        Assertions.assertThatThrownBy(() -> underTest.getCustomersPage(null, CustomerService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE));
+        verify(customerDao, never()).selectCustomerDTOsPage(any(), anyInt());
+    }
+
+    @Test
+    void shouldSearchCustomers() {
+        // Given
+        CustomerSearchRequest request = new CustomerSearchRequest("Vo", " ", 18, 30, Gender.MALE, "age,desc", 10, 20);
+
+        // When
+        underTest.searchCustomers(request);
+
+        // Then
+        verify(customerDao).searchCustomers(new CustomerSearch(
+                "Vo", null, 18, 30, Gender.MALE, CustomerSearch.SortField.AGE, true, 10, 20));
+    }
+
+    @Test
+    void shouldThrowWhenSearchSortIsUnknown() {
+        // Given
+        CustomerSearchRequest request = new CustomerSearchRequest(null, null, null, null, null, "password", null, null);
+
+        // Then
+        Assertions.assertThatThrownBy(() -> underTest.searchCustomers(request))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("can't sort by password");
+        verify(customerDao, never()).searchCustomers(any());
     }
 
     @Test
@@ -53,8 +129,8 @@ class CustomerServiceTest {
         // Given
         int id = 10;
         Customer customer = new Customer(id, "Vova", "vova@gmail.com", 10, Gender.FEMALE, "foobar");
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
         CustomerDTO expected = customerDTOMapper.apply(customer);
+        when(customerDao.selectCustomerDTOById(id)).thenReturn(Optional.of(expected));
         // When
         CustomerDTO actual = underTest.getCustomer(id);
 
@@ -66,7 +142,7 @@ class CustomerServiceTest {
     void shouldThrowWhenCustomerNotPresent() {
         // Given
         int id = 10;
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerDTOById(id)).thenReturn(Optional.empty());
 
         // Then
         Assertions.assertThatThrownBy(() -> underTest.getCustomer(id))
@@ -82,9 +158,14 @@ class CustomerServiceTest {
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("Vova", email, 20, Gender.MALE, "password");
         when(customerDao.existsCustomerWithEmail(email)).thenReturn(false);
         when(passwordEncoder.encode(request.password())).thenReturn(password);
+        when(customerDao.insertCustomer(any())).thenAnswer(invocation -> {
+            Customer inserted = invocation.<Customer>getArgument(0).copy();
+            inserted.setId(7);
+            return inserted;
+        });
 
         // When
-        underTest.addCustomer(request);
+        CustomerDTO actual = underTest.addCustomer(request);
 
         // Then
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
@@ -98,6 +179,46 @@ class CustomerServiceTest {
         Assertions.assertThat(captured.getEmail()).isEqualTo(request.email());
         Assertions.assertThat(captured.getAge()).isEqualTo(request.age());
         Assertions.assertThat(captured.getPassword()).isEqualTo(password);
+        Assertions.assertThat(actual.id()).isEqualTo(7);
+        Assertions.assertThat(actual.username()).isEqualTo(email);
+        verify(customerDao, never()).selectUserByEmail(email);
+    }
+
+    @Test
+    void shouldQueueCustomerWhenWriteBehindIsEnabled() {
+        // Given
+        CustomerInsertBatcher insertBatcher = mock(CustomerInsertBatcher.class);
+        underTest = new CustomerService(customerDao, passwordEncoder, customerDTOMapper, insertBatcher);
+        String email = "vova@gmail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Vova", email, 20, Gender.MALE, "password");
+        when(customerDao.existsCustomerWithEmail(email)).thenReturn(false);
+        when(passwordEncoder.encode(request.password())).thenReturn("hash");
+        CompletableFuture<Customer> inserted = new CompletableFuture<>();
+        when(insertBatcher.insert(any())).thenReturn(inserted);
+
+        // When
+        CompletableFuture<CustomerDTO> actual = underTest.addCustomerAsync(request);
+
+        // Then
+        Assertions.assertThat(actual).isNotDone();
+        inserted.complete(new Customer(7, "Vova", email, 20, Gender.MALE, "hash"));
+        Assertions.assertThat(actual.join().id()).isEqualTo(7);
+        verify(customerDao, never()).insertCustomer(any());
+    }
+
+    @Test
+    void shouldThrowWhenEmailTakenByConcurrentInsert() {
+        // Given
+        String email = "vova@gmail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Vova", email, 20, Gender.MALE, "password");
+        when(customerDao.existsCustomerWithEmail(email)).thenReturn(false);
+        when(passwordEncoder.encode(request.password())).thenReturn("hash");
+        when(customerDao.insertCustomer(any())).thenThrow(new DuplicateKeyException("customer_email_unique"));
+
+        // Then
+        Assertions.assertThatThrownBy(() -> underTest.addCustomer(request))
+                .isInstanceOf(DuplicatedResourceException.class)
+                .hasMessage("email already taken");
     }
 
     @Test
@@ -120,7 +241,7 @@ class CustomerServiceTest {
     void shouldDeleteCustomerById() {
         // Given
         int id = 10;
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
+        when(customerDao.deleteCustomerById(id)).thenReturn(1);
 
         // When
         underTest.deleteCustomerById(id);
@@ -133,7 +254,7 @@ class CustomerServiceTest {
     void shouldThrowWhenCustomerNotPresentById() {
         // Given
         int id = 10;
-        when(customerDao.existsCustomerWithId(id)).thenReturn(false);
+        when(customerDao.deleteCustomerById(id)).thenReturn(0);
 
         // Then
         Assertions.assertThatThrownBy(() -> underTest.deleteCustomerById(id))
@@ -141,126 +262,119 @@ class CustomerServiceTest {
                 .hasMessage("customer with id [%s] not found".formatted(id));
 
         // Then
+        verify(customerDao, never()).existsCustomerWithId(id);
+    }
+
+    @Test
+    void shouldThrowWhenDeletingStaleVersion() {
+        // Given
+        int id = 10;
+        when(customerDao.deleteCustomerById(id, 1L)).thenReturn(0);
+        when(customerDao.selectCustomerVersion(id)).thenReturn(Optional.of(2L));
+
+        // Then
+        Assertions.assertThatThrownBy(() -> underTest.deleteCustomerById(id, 1L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id [%s] was modified".formatted(id));
         verify(customerDao, never()).deleteCustomerById(id);
     }
 
+    @Test
+    void shouldThrowWhenUpdatingStaleVersion() {
+        // Given
+        int id = 10;
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Volodya", null, null, null);
+        when(customerDao.updateCustomer(eq(id), any(), eq(1L))).thenReturn(CustomerUpdateResult.versionMismatch());
+
+        // Then
+        Assertions.assertThatThrownBy(() -> underTest.updateCustomer(request, id, 1L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("customer with id [%s] was modified".formatted(id));
+    }
+
     @Test
     void shouldUpdateAllCustomerProperties() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.FEMALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest("Volodya", "vova+1@gmail.com", 27, Gender.FEMALE);
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
-        when(customerDao.existsCustomerWithEmail(request.email())).thenReturn(false);
+        Customer updated = new Customer(id, "Volodya", "vova+1@gmail.com", 27, Gender.FEMALE, "foobar");
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.updated(updated));
 
         // When
         underTest.updateCustomer(request, id);
 
         // Then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        ArgumentCaptor<CustomerUpdate> updateArgumentCaptor = ArgumentCaptor.forClass(CustomerUpdate.class);
 
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).updateCustomer(eq(id), updateArgumentCaptor.capture(), isNull());
 
-        Customer actual = customerArgumentCaptor.getValue();
+        CustomerUpdate actual = updateArgumentCaptor.getValue();
 
-        Assertions.assertThat(actual.getId()).isEqualTo(id);
-        Assertions.assertThat(actual.getEmail()).isEqualTo(request.email());
-        Assertions.assertThat(actual.getName()).isEqualTo(request.name());
-        Assertions.assertThat(actual.getAge()).isEqualTo(request.age());
+        Assertions.assertThat(actual.email()).isEqualTo(request.email());
+        Assertions.assertThat(actual.name()).isEqualTo(request.name());
+        Assertions.assertThat(actual.age()).isEqualTo(request.age());
+        Assertions.assertThat(actual.gender()).isEqualTo(request.gender());
     }
 
     @Test
     void shouldUpdateOnlyName() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.FEMALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest("Volodya", null, null, null);
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        Customer updated = new Customer(id, "Volodya", "vova@gmail.com", 26, Gender.FEMALE, "foobar");
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.updated(updated));
 
         // When
         underTest.updateCustomer(request, id);
 
         // Then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
-
-        Customer actual = customerArgumentCaptor.getValue();
-
-        Assertions.assertThat(actual.getId()).isEqualTo(id);
-        Assertions.assertThat(actual.getName()).isEqualTo(request.name());
+        verify(customerDao).updateCustomer(id, new CustomerUpdate("Volodya", null, null, null), null);
     }
 
     @Test
     void shouldUpdateOnlyEmail() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.FEMALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, "vova+1@gmail.com", null, null);
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
-        when(customerDao.existsCustomerWithEmail(request.email())).thenReturn(false);
+        Customer updated = new Customer(id, "Vova", "vova+1@gmail.com", 26, Gender.FEMALE, "foobar");
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.updated(updated));
 
         // When
         underTest.updateCustomer(request, id);
 
         // Then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
-
-        Customer actual = customerArgumentCaptor.getValue();
-
-        Assertions.assertThat(actual.getId()).isEqualTo(id);
-        Assertions.assertThat(actual.getEmail()).isEqualTo(request.email());
+        verify(customerDao).updateCustomer(id, new CustomerUpdate(null, "vova+1@gmail.com", null, null), null);
+        verify(customerDao, never()).existsCustomerWithEmail(any());
     }
 
     @Test
     void shouldUpdateOnlyAge() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.MALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, null, 27, null);
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        Customer updated = new Customer(id, "Vova", "vova@gmail.com", 27, Gender.MALE, "foobar");
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.updated(updated));
 
         // When
         underTest.updateCustomer(request, id);
 
         // Then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
-
-        Customer actual = customerArgumentCaptor.getValue();
-
-        Assertions.assertThat(actual.getId()).isEqualTo(id);
-        Assertions.assertThat(actual.getAge()).isEqualTo(request.age());
+        verify(customerDao).updateCustomer(id, new CustomerUpdate(null, null, 27, null), null);
     }
 
     @Test
     void shouldUpdateOnlyGender() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.MALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest(null, null, null, Gender.FEMALE);
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        Customer updated = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.FEMALE, "foobar");
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.updated(updated));
 
         // When
         underTest.updateCustomer(request, id);
 
         // Then
-        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
-
-        Customer actual = customerArgumentCaptor.getValue();
-
-        Assertions.assertThat(actual.getId()).isEqualTo(id);
-        Assertions.assertThat(actual.getGender()).isEqualTo(request.gender());
+        verify(customerDao).updateCustomer(id, new CustomerUpdate(null, null, null, Gender.FEMALE), null);
     }
 
     @Test
@@ -268,7 +382,7 @@ class CustomerServiceTest {
         // Given
         int id = 10;
         CustomerUpdateRequest request = new CustomerUpdateRequest("Vova", "vova@gmail.com", 25, Gender.FEMALE);
-        when(customerDao.existsCustomerWithId(id)).thenReturn(false);
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.notFound());
 
         // Then
         Assertions.assertThatThrownBy(() -> underTest.updateCustomer(request, id))
@@ -280,34 +394,25 @@ class CustomerServiceTest {
     void shouldThrowWhenCustomerWhenEmailTaken() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.MALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest("Vova", "vova+1@gmail.com", 25, Gender.MALE);
-
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
-        when(customerDao.existsCustomerWithEmail(request.email())).thenReturn(true);
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenThrow(new DuplicateKeyException("customer_email_key"));
 
         // Then
         Assertions.assertThatThrownBy(() -> underTest.updateCustomer(request, id))
                 .isInstanceOf(DuplicatedResourceException.class)
                 .hasMessage("email already taken");
-        verify(customerDao, never()).updateCustomer(any());
     }
 
     @Test
     void shouldThrowWhenCustomerDataTheSame() {
         // Given
         int id = 10;
-        Customer customer = new Customer(id, "Vova", "vova@gmail.com", 26, Gender.FEMALE, "foobar");
         CustomerUpdateRequest request = new CustomerUpdateRequest("Vova", "vova@gmail.com", 26, Gender.FEMALE);
-
-        when(customerDao.existsCustomerWithId(id)).thenReturn(true);
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomer(eq(id), any(), isNull())).thenReturn(CustomerUpdateResult.unchanged());
 
         // Then
         Assertions.assertThatThrownBy(() -> underTest.updateCustomer(request, id))
                 .isInstanceOf(RequestValidationException.class)
                 .hasMessage("no data changes needed");
-        verify(customerDao, never()).updateCustomer(any());
     }
-}
\ No newline at end of file
+}
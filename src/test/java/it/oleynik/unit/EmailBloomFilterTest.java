@@ -0,0 +1,64 @@
+package it.oleynik.unit;
+
+import it.oleynik.customer.db.EmailBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmailBloomFilterTest {
+
+    @Test
+    void shouldContainEveryPutEmail() {
+        // Given
+        EmailBloomFilter underTest = EmailBloomFilter.create(10_000, 0.01);
+
+        // When
+        IntStream.range(0, 10_000).forEach(i -> underTest.put("customer" + i + "@mail.com"));
+
+        // Then
+        assertThat(IntStream.range(0, 10_000))
+                .allMatch(i -> underTest.mightContain("customer" + i + "@mail.com"));
+        // an email that already was a false positive sets no new bit and isn't counted
+        assertThat(underTest.insertions()).isBetween(9_900L, 10_000L);
+    }
+
+    @Test
+    void shouldKeepFalsePositivesNearConfiguredRate() {
+        // Given
+        EmailBloomFilter underTest = EmailBloomFilter.create(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> underTest.put("customer" + i + "@mail.com"));
+
+        // When
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> underTest.mightContain("unknown" + i + "@mail.com"))
+                .count();
+
+        // Then
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(underTest.expectedFalsePositiveRate()).isLessThan(0.02);
+    }
+
+    @Test
+    void shouldNotCountRepeatedEmail() {
+        // Given
+        EmailBloomFilter underTest = EmailBloomFilter.create(100, 0.01);
+
+        // When
+        boolean first = underTest.put("vova@gmail.com");
+        boolean second = underTest.put("vova@gmail.com");
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(underTest.insertions()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectInvalidFalsePositiveRate() {
+        assertThatThrownBy(() -> EmailBloomFilter.create(100, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
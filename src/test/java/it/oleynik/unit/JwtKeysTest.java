@@ -0,0 +1,85 @@
+package it.oleynik.unit;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.jwt.JwtKeys;
+import it.oleynik.jwt.JwtProperties;
+import it.oleynik.jwt.JwtTokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeysTest {
+
+    private final Customer customer = new Customer(1, "Vova", "vova@gmail.com", 22, Gender.MALE, "password");
+
+    @Test
+    void shouldRoundTripEverySupportedAlgorithm() throws JOSEException {
+        List<JWK> keys = List.of(
+                new RSAKeyGenerator(2048).keyID("rsa").algorithm(JWSAlgorithm.RS256).generate(),
+                new ECKeyGenerator(Curve.P_256).keyID("ec").algorithm(JWSAlgorithm.ES256).generate(),
+                new OctetSequenceKeyGenerator(256).keyID("hmac").algorithm(JWSAlgorithm.HS256).generate()
+        );
+
+        for (JWK key : keys) {
+            // Given
+            JwtTokenService tokenService = new JwtTokenService(JwtKeys.encoder(key), JwtKeys.header(key));
+            JwtDecoder decoder = JwtKeys.decoder(JwtKeys.verificationKeys(key, List.of()));
+
+            // When
+            Jwt actual = decoder.decode(tokenService.generateAccessToken(customer));
+
+            // Then
+            assertThat(actual.getSubject()).isEqualTo(customer.getUsername());
+            assertThat(actual.getHeaders())
+                    .containsEntry("kid", key.getKeyID())
+                    .containsEntry("alg", key.getAlgorithm().getName());
+        }
+    }
+
+    @Test
+    void shouldAcceptTokensSignedWithPreviousKey() throws JOSEException {
+        // Given
+        OctetSequenceKey previous = new OctetSequenceKeyGenerator(256)
+                .keyID("hmac-1").algorithm(JWSAlgorithm.HS256).generate();
+        JWK current = new ECKeyGenerator(Curve.P_256).keyID("ec-2").algorithm(JWSAlgorithm.ES256).generate();
+        String token = new JwtTokenService(JwtKeys.encoder(previous), JwtKeys.header(previous))
+                .generateAccessToken(customer);
+
+        JwtDecoder decoder = JwtKeys.decoder(JwtKeys.verificationKeys(current, List.of(
+                new JwtProperties.VerificationKey("hmac-1", "HS256", null,
+                        Base64.getEncoder().encodeToString(previous.toByteArray())))));
+
+        // When
+        Jwt actual = decoder.decode(token);
+
+        // Then
+        assertThat(actual.getSubject()).isEqualTo(customer.getUsername());
+    }
+
+    @Test
+    void shouldRejectUnsupportedAlgorithm() {
+        // Given
+        JwtProperties properties = new JwtProperties("EdDSA", "ed-1", null, null, null, List.of());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> JwtKeys.signingKey(properties))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unsupported jwt algorithm EdDSA");
+    }
+}
@@ -0,0 +1,140 @@
+package it.oleynik.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.oleynik.exception.TooManyRequestsException;
+import it.oleynik.security.LoginRateLimitFilter;
+import it.oleynik.security.RateLimiter;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginRateLimitFilterTest {
+
+    @Mock
+    private HandlerExceptionResolver handlerExceptionResolver;
+    private SimpleMeterRegistry meterRegistry;
+    private LoginRateLimitFilter underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new LoginRateLimitFilter(
+                new RateLimiter(10, Duration.ofMinutes(1), 100),
+                new RateLimiter(2, Duration.ofMinutes(1), 100),
+                new ObjectMapper(),
+                handlerExceptionResolver,
+                meterRegistry);
+    }
+
+    @Test
+    void shouldPassBodyThroughToLogin() throws ServletException, IOException {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        underTest.doFilter(login("vova@gmail.com"), new MockHttpServletResponse(), chain);
+
+        // Then
+        String forwarded = new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(forwarded).contains("vova@gmail.com");
+        verifyNoInteractions(handlerExceptionResolver);
+    }
+
+    @Test
+    void shouldNotifyReadListenerOfBufferedBody() throws ServletException, IOException {
+        // Given
+        MockFilterChain chain = new MockFilterChain();
+        underTest.doFilter(login("vova@gmail.com"), new MockHttpServletResponse(), chain);
+        ServletInputStream body = chain.getRequest().getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        boolean[] allRead = {false};
+
+        // When
+        body.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (body.isReady() && !body.isFinished()) {
+                    read.write(body.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new AssertionError(t);
+            }
+        });
+
+        // Then
+        assertThat(read.toString(StandardCharsets.UTF_8)).contains("vova@gmail.com");
+        assertThat(allRead[0]).isTrue();
+    }
+
+    @Test
+    void shouldRejectUsernameOverLimitBeforeAuthentication() throws ServletException, IOException {
+        // Given
+        underTest.doFilter(login("vova@gmail.com"), new MockHttpServletResponse(), new MockFilterChain());
+        underTest.doFilter(login("VOVA@gmail.com"), new MockHttpServletResponse(), new MockFilterChain());
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        underTest.doFilter(login("vova@gmail.com"), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(chain.getRequest()).isNull();
+        verify(handlerExceptionResolver).resolveException(any(), any(), isNull(), any(TooManyRequestsException.class));
+        assertThat(meterRegistry.get("security.login.rate-limited").tag("limit", "username").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreOtherEndpoints() throws ServletException, IOException {
+        // Given
+        MockHttpServletRequest request = login("vova@gmail.com");
+        request.setRequestURI("/api/v1/auth/refresh");
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        }
+        underTest.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(chain.getRequest()).isSameAs(request);
+        verifyNoInteractions(handlerExceptionResolver);
+    }
+
+    private static MockHttpServletRequest login(String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr("10.0.0.1");
+        request.setContentType("application/json");
+        request.setContent("""
+                {"username":"%s","password":"password"}
+                """.formatted(username).getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
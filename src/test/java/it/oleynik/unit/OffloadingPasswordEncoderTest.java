@@ -0,0 +1,109 @@
+package it.oleynik.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.oleynik.exception.ServiceUnavailableException;
+import it.oleynik.security.OffloadingPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffloadingPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed-" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OffloadingPasswordEncoder underTest;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        underTest.destroy();
+    }
+
+    @Test
+    void shouldEncodeOnHashingPool() {
+        // Given
+        underTest = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, Duration.ofSeconds(5), meterRegistry);
+        release.countDown();
+
+        // When
+        String actual = underTest.encode("password");
+
+        // Then
+        assertThat(actual).isEqualTo("hashed-password");
+        assertThat(underTest.matches("password", actual)).isTrue();
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        // Given
+        underTest = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, Duration.ofSeconds(5), meterRegistry);
+        CompletableFuture.runAsync(() -> underTest.encode("running"));
+        CompletableFuture.runAsync(() -> underTest.encode("queued"));
+        while (underTest.queueDepth() < 1) {
+            Thread.sleep(10);
+        }
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.encode("rejected"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("capacity exceeded");
+        assertThat(meterRegistry.get("password.hash.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldGiveUpAfterTimeout() {
+        // Given
+        underTest = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, Duration.ofMillis(50), meterRegistry);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.encode("slow"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("timed out");
+    }
+
+    @Test
+    void shouldKeepCapacityOfTimedOutHashUntilItFinishes() throws InterruptedException {
+        // Given
+        underTest = new OffloadingPasswordEncoder(blockingEncoder, 1, 1, Duration.ofMillis(50), meterRegistry);
+        assertThatThrownBy(() -> underTest.encode("slow"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("timed out");
+        CompletableFuture.runAsync(() -> underTest.encode("queued"));
+        while (underTest.queueDepth() < 1) {
+            Thread.sleep(10);
+        }
+
+        // When
+        // Then
+        assertThat(underTest.inFlight()).isEqualTo(2);
+        assertThatThrownBy(() -> underTest.encode("rejected"))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("capacity exceeded");
+    }
+}
@@ -0,0 +1,56 @@
+package it.oleynik.unit;
+
+import it.oleynik.security.RateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final RateLimiter underTest = new RateLimiter(5, Duration.ofMinutes(1), 100, nanos::get);
+
+    @Test
+    void shouldAllowBurstUpToCapacity() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            assertThat(underTest.tryAcquire("10.0.0.1")).isZero();
+        }
+        Duration actual = underTest.tryAcquire("10.0.0.1");
+
+        // Then
+        assertThat(actual).isEqualTo(Duration.ofSeconds(12));
+    }
+
+    @Test
+    void shouldRefillOneTokenPerInterval() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            underTest.tryAcquire("10.0.0.1");
+        }
+
+        // When
+        nanos.addAndGet(Duration.ofSeconds(12).toNanos());
+
+        // Then
+        assertThat(underTest.tryAcquire("10.0.0.1")).isZero();
+        assertThat(underTest.tryAcquire("10.0.0.1")).isPositive();
+    }
+
+    @Test
+    void shouldKeepKeysIndependent() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            underTest.tryAcquire("10.0.0.1");
+        }
+
+        // When
+        Duration actual = underTest.tryAcquire("10.0.0.2");
+
+        // Then
+        assertThat(actual).isZero();
+    }
+}
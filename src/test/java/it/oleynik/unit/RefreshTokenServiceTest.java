@@ -0,0 +1,124 @@
+package it.oleynik.unit;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import it.oleynik.customer.Gender;
+import it.oleynik.customer.db.Customer;
+import it.oleynik.customer.db.CustomerListDataAccessService;
+import it.oleynik.jwt.CachingJwtDecoder;
+import it.oleynik.jwt.JwtKeys;
+import it.oleynik.jwt.JwtTokenService;
+import it.oleynik.jwt.RefreshTokenService;
+import it.oleynik.jwt.RevocationCheckingJwtDecoder;
+import it.oleynik.jwt.TokenRevocationStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Clock;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenServiceTest {
+
+    private static final String SUBJECT = "vova@gmail.com";
+
+    private TokenRevocationStore revocationStore;
+    private RevocationCheckingJwtDecoder bearerDecoder;
+    private CustomerListDataAccessService customerDao;
+    private RefreshTokenService underTest;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        JWK key = new OctetSequenceKeyGenerator(256).keyID("hmac").algorithm(JWSAlgorithm.HS256).generate();
+        CachingJwtDecoder jwtDecoder = new CachingJwtDecoder(JwtKeys.decoder(JwtKeys.verificationKeys(key, List.of())), 100);
+        revocationStore = new TokenRevocationStore(null, Clock.systemUTC());
+        bearerDecoder = new RevocationCheckingJwtDecoder(jwtDecoder, revocationStore);
+        customerDao = new CustomerListDataAccessService(List.of(
+                new Customer(1, "Vova", SUBJECT, 20, Gender.MALE, "password")));
+        underTest = new RefreshTokenService(
+                new JwtTokenService(JwtKeys.encoder(key), JwtKeys.header(key)), jwtDecoder, revocationStore, customerDao);
+    }
+
+    @Test
+    void shouldRotateRefreshToken() {
+        // Given
+        RefreshTokenService.TokenPair issued = underTest.issue(SUBJECT);
+
+        // When
+        RefreshTokenService.TokenPair actual = underTest.refresh(issued.refreshToken());
+
+        // Then
+        assertThat(bearerDecoder.decode(actual.accessToken()).getSubject()).isEqualTo(SUBJECT);
+        assertThat(actual.refreshToken()).isNotEqualTo(issued.refreshToken());
+        assertThat(revocationStore.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRefuseReusedRefreshToken() {
+        // Given
+        RefreshTokenService.TokenPair issued = underTest.issue(SUBJECT);
+        underTest.refresh(issued.refreshToken());
+
+        // Then
+        assertThatThrownBy(() -> underTest.refresh(issued.refreshToken()))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("refresh token already used");
+    }
+
+    @Test
+    void shouldRefuseRefreshTokenOfDeletedCustomer() {
+        // Given
+        RefreshTokenService.TokenPair issued = underTest.issue(SUBJECT);
+        customerDao.deleteCustomerById(1);
+
+        // Then
+        assertThatThrownBy(() -> underTest.refresh(issued.refreshToken()))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("customer no longer exists");
+    }
+
+    @Test
+    void shouldRefuseAccessTokenAsRefreshToken() {
+        // Given
+        RefreshTokenService.TokenPair issued = underTest.issue(SUBJECT);
+
+        // Then
+        assertThatThrownBy(() -> underTest.refresh(issued.accessToken()))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("invalid refresh token");
+    }
+
+    @Test
+    void shouldRejectRefreshTokenAsBearerToken() {
+        // Given
+        RefreshTokenService.TokenPair issued = underTest.issue(SUBJECT);
+
+        // Then
+        assertThatThrownBy(() -> bearerDecoder.decode(issued.refreshToken()))
+                .isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    void shouldRejectAccessTokenAfterLogout() {
+        // Given
+        RefreshTokenService.TokenPair issued = underTest.issue(SUBJECT);
+        Jwt accessToken = bearerDecoder.decode(issued.accessToken());
+
+        // When
+        underTest.revoke(accessToken, issued.refreshToken());
+
+        // Then
+        assertThatThrownBy(() -> bearerDecoder.decode(issued.accessToken()))
+                .isInstanceOf(BadJwtException.class)
+                .hasMessage("token has been revoked");
+        assertThatThrownBy(() -> underTest.refresh(issued.refreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+    }
+}
@@ -0,0 +1,44 @@
+package it.oleynik.unit;
+
+import it.oleynik.customer.db.Roles;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RolesTest {
+
+    @Test
+    void shouldShareOneInstancePerRoleSet() {
+        // When
+        Roles first = Roles.of("ROLE_USER,ROLE_ADMIN");
+        Roles second = Roles.of(" ROLE_ADMIN , ROLE_USER,ROLE_USER");
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(first.value()).isEqualTo("ROLE_ADMIN,ROLE_USER");
+        assertThat(first.authorities()).isSameAs(second.authorities());
+    }
+
+    @Test
+    void shouldExposeNamesAsAuthorities() {
+        // When
+        Roles actual = Roles.of("ROLE_USER");
+
+        // Then
+        assertThat(actual).isSameAs(Roles.USER);
+        assertThat(actual.names()).containsExactly("ROLE_USER");
+        assertThat(actual.authorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void shouldNotInternUnknownRoles() {
+        // When
+        Roles first = Roles.of("ROLE_SUPPORT, ROLE_USER");
+        Roles second = Roles.of("ROLE_USER,ROLE_SUPPORT");
+
+        // Then
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+        assertThat(first.value()).isEqualTo("ROLE_SUPPORT,ROLE_USER");
+    }
+}